@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2015 Karumi.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.karumi.expandableselector.benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Prints every benchmark result and appends it to a CSV file with the format "name,value,unit"
+ * so the results obtained with different versions of the library can be compared.
+ */
+class BenchmarkReport {
+
+  private final File file;
+
+  BenchmarkReport(File file) {
+    this.file = file;
+  }
+
+  void add(String name, double value, String unit) {
+    String line = name + "," + value + "," + unit;
+    System.out.println(line);
+    File directory = file.getParentFile();
+    if (directory != null && !directory.exists() && !directory.mkdirs()) {
+      throw new IllegalStateException("Can't create the benchmark report directory " + directory);
+    }
+    Writer writer = null;
+    try {
+      writer = new FileWriter(file, true);
+      writer.write(line);
+      writer.write('\n');
+    } catch (IOException e) {
+      throw new IllegalStateException("Can't write the benchmark report " + file, e);
+    } finally {
+      close(writer);
+    }
+  }
+
+  private void close(Writer writer) {
+    if (writer == null) {
+      return;
+    }
+    try {
+      writer.close();
+    } catch (IOException e) {
+      throw new IllegalStateException("Can't close the benchmark report " + file, e);
+    }
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2015 Karumi.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.karumi.expandableselector.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Executes a BenchmarkTask a fixed number of warm up iterations, to let the JIT compile the code
+ * measured, and then measures every iteration independently. The median and the minimum time
+ * spent per iteration are reported to the BenchmarkReport passed in construction time.
+ */
+class BenchmarkRunner {
+
+  private final int warmUpIterations;
+  private final int measuredIterations;
+  private final BenchmarkReport report;
+  private final long[] times;
+
+  BenchmarkRunner(int warmUpIterations, int measuredIterations, BenchmarkReport report) {
+    this.warmUpIterations = warmUpIterations;
+    this.measuredIterations = measuredIterations;
+    this.report = report;
+    this.times = new long[measuredIterations];
+  }
+
+  /**
+   * Measures the task passed as parameter and returns the median time spent per iteration in
+   * nanoseconds.
+   */
+  long measure(String name, BenchmarkTask task) {
+    for (int i = 0; i < warmUpIterations; i++) {
+      task.prepare();
+      task.run(i);
+    }
+    for (int i = 0; i < measuredIterations; i++) {
+      task.prepare();
+      long start = System.nanoTime();
+      task.run(warmUpIterations + i);
+      times[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(times);
+    long median = times[measuredIterations / 2];
+    report.add(name + ".median", median, "ns/op");
+    report.add(name + ".min", times[0], "ns/op");
+    return median;
+  }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2015 Karumi.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.karumi.expandableselector.benchmark;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import com.karumi.expandableselector.ExpandableItem;
+import com.karumi.expandableselector.ExpandableSelector;
+import com.karumi.expandableselector.ExpandableSelectorListener;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+/**
+ * Measures the hot paths of ExpandableSelector on the JVM. Every benchmark result is printed and
+ * appended to build/benchmark/results.csv. Execute it using
+ * "./gradlew :benchmark:testDebug -Pbenchmark".
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class ExpandableSelectorBenchmark {
+
+  private static final int WARM_UP_ITERATIONS = 50;
+  private static final int MEASURED_ITERATIONS = 200;
+  private static final int SCREEN_WIDTH = 1080;
+  private static final int SCREEN_HEIGHT = 1920;
+  private static final int FRAME_DURATION_IN_MILLIS = 16;
+  private static final int MAX_ANIMATION_FRAMES = 500;
+  private static final BenchmarkReport REPORT =
+      new BenchmarkReport(new File("build/benchmark/results.csv"));
+
+  private FrameLayout rootView;
+  private ExpandableSelector expandableSelector;
+  private BenchmarkRunner runner;
+  private Canvas canvas;
+  private boolean isAnimationFinished;
+
+  @Before public void setUp() {
+    Activity activity = Robolectric.setupActivity(Activity.class);
+    rootView = new FrameLayout(activity);
+    expandableSelector = new ExpandableSelector(activity);
+    FrameLayout.LayoutParams layoutParams =
+        new FrameLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+            ViewGroup.LayoutParams.WRAP_CONTENT, Gravity.BOTTOM);
+    rootView.addView(expandableSelector, layoutParams);
+    activity.setContentView(rootView);
+    expandableSelector.setExpandableSelectorListener(new ExpandableSelectorListener() {
+      @Override public void onCollapse() {
+      }
+
+      @Override public void onExpand() {
+      }
+
+      @Override public void onCollapsed() {
+        isAnimationFinished = true;
+      }
+
+      @Override public void onExpanded() {
+        isAnimationFinished = true;
+      }
+    });
+    runner = new BenchmarkRunner(WARM_UP_ITERATIONS, MEASURED_ITERATIONS, REPORT);
+    canvas = new Canvas(Bitmap.createBitmap(SCREEN_WIDTH, SCREEN_HEIGHT, Bitmap.Config.ARGB_8888));
+  }
+
+  @Test public void showExpandableItemsWith4Items() {
+    measureShowExpandableItems(4);
+  }
+
+  @Test public void showExpandableItemsWith32Items() {
+    measureShowExpandableItems(32);
+  }
+
+  @Test public void showExpandableItemsWith256Items() {
+    measureShowExpandableItems(256);
+  }
+
+  /**
+   * Every pass over the items alternates between two different titles, so every update measured
+   * changes the ExpandableItem shown and the widget has to be configured again.
+   */
+  @Test public void updateExpandableItem() {
+    final int numberOfItems = 32;
+    final List<ExpandableItem> items = createExpandableItems(numberOfItems, "Item ");
+    final List<ExpandableItem> updatedItems = createExpandableItems(numberOfItems, "Updated ");
+    expandableSelector.showExpandableItems(items);
+
+    runner.measure("updateExpandableItem", new BenchmarkTask() {
+      @Override void run(int iteration) {
+        int position = iteration % numberOfItems;
+        boolean isUpdatedPass = (iteration / numberOfItems) % 2 == 0;
+        List<ExpandableItem> source = isUpdatedPass ? updatedItems : items;
+        expandableSelector.updateExpandableItem(position, source.get(position));
+      }
+    });
+  }
+
+  @Test public void expandSetUpWith32Items() {
+    expandableSelector.showExpandableItems(createExpandableItems(32, "Item "));
+    layoutRootView();
+
+    runner.measure("expand.setUp.32", new BenchmarkTask() {
+      @Override void prepare() {
+        if (expandableSelector.isExpanded()) {
+          expandableSelector.collapse();
+          runAnimation();
+        }
+      }
+
+      @Override void run(int iteration) {
+        expandableSelector.expand();
+      }
+    });
+  }
+
+  @Test public void collapseSetUpWith32Items() {
+    expandableSelector.showExpandableItems(createExpandableItems(32, "Item "));
+    layoutRootView();
+
+    runner.measure("collapse.setUp.32", new BenchmarkTask() {
+      @Override void prepare() {
+        if (expandableSelector.isCollapsed()) {
+          expandableSelector.expand();
+          runAnimation();
+        }
+      }
+
+      @Override void run(int iteration) {
+        expandableSelector.collapse();
+      }
+    });
+  }
+
+  @Test public void layoutPassesPerAnimationFrameWith4Items() {
+    measureLayoutPassesPerAnimationFrame(4);
+  }
+
+  @Test public void layoutPassesPerAnimationFrameWith32Items() {
+    measureLayoutPassesPerAnimationFrame(32);
+  }
+
+  private void measureShowExpandableItems(int numberOfItems) {
+    final List<ExpandableItem> expandableItems = createExpandableItems(numberOfItems, "Item ");
+
+    runner.measure("showExpandableItems." + numberOfItems, new BenchmarkTask() {
+      @Override void run(int iteration) {
+        expandableSelector.showExpandableItems(expandableItems);
+      }
+    });
+  }
+
+  private void measureLayoutPassesPerAnimationFrame(int numberOfItems) {
+    expandableSelector.showExpandableItems(createExpandableItems(numberOfItems, "Item "));
+    layoutRootView();
+
+    expandableSelector.expand();
+    double expandLayoutPasses = runAnimation();
+    expandableSelector.collapse();
+    double collapseLayoutPasses = runAnimation();
+
+    REPORT.add("expand.layoutPassesPerFrame." + numberOfItems, expandLayoutPasses, "layouts/frame");
+    REPORT.add("collapse.layoutPassesPerFrame." + numberOfItems, collapseLayoutPasses,
+        "layouts/frame");
+  }
+
+  /**
+   * Emulates the frames rendered until the current expand/collapse animation finishes and returns
+   * the number of layout passes performed per frame. Every frame runs the animation callbacks
+   * scheduled, performs a layout pass if any view requested it and draws the view hierarchy.
+   */
+  private double runAnimation() {
+    isAnimationFinished = false;
+    int frames = 0;
+    int layoutPasses = 0;
+    while (!isAnimationFinished && frames < MAX_ANIMATION_FRAMES) {
+      ShadowLooper.idleMainLooper(FRAME_DURATION_IN_MILLIS);
+      if (rootView.isLayoutRequested()) {
+        layoutRootView();
+        layoutPasses++;
+      }
+      rootView.draw(canvas);
+      frames++;
+    }
+    return frames == 0 ? 0 : (double) layoutPasses / frames;
+  }
+
+  private void layoutRootView() {
+    rootView.measure(View.MeasureSpec.makeMeasureSpec(SCREEN_WIDTH, View.MeasureSpec.EXACTLY),
+        View.MeasureSpec.makeMeasureSpec(SCREEN_HEIGHT, View.MeasureSpec.EXACTLY));
+    rootView.layout(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
+  }
+
+  private List<ExpandableItem> createExpandableItems(int numberOfItems, String titlePrefix) {
+    List<ExpandableItem> expandableItems = new ArrayList<ExpandableItem>(numberOfItems);
+    for (int i = 0; i < numberOfItems; i++) {
+      expandableItems.add(new ExpandableItem(titlePrefix + i));
+    }
+    return expandableItems;
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2015 Karumi.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.karumi.expandableselector;
+
+import android.os.Debug;
+import android.test.InstrumentationTestCase;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import com.karumi.expandableselector.animation.ExpandableSelectorAnimator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the collapse/expand animations don't allocate any object once the ExpandableSelector has
+ * been expanded and collapsed for the first time. Objects are counted in the UI thread while
+ * expand and collapse are invoked and from the second animation frame, once the framework has
+ * scheduled the animation, until the ExpandableSelectorListener is notified.
+ */
+public class ExpandableSelectorAllocationTest extends InstrumentationTestCase {
+
+  private static final int NUMBER_OF_ITEMS = 8;
+  private static final int WARM_UP_ITERATIONS = 3;
+  private static final int MEASURED_ITERATIONS = 5;
+  private static final long ANIMATION_TIMEOUT_SECONDS = 5;
+
+  private final Semaphore animationsFinished = new Semaphore(0);
+  private ExpandableSelector expandableSelector;
+  private boolean isAnimationRunning;
+  private boolean isChangingState;
+  private boolean isCountingAllocations;
+  private boolean isMeasuring;
+  private int allocationCount;
+
+  @Override protected void setUp() throws Exception {
+    super.setUp();
+    getInstrumentation().runOnMainSync(new Runnable() {
+      @Override public void run() {
+        givenAnExpandableSelectorLaidOut();
+      }
+    });
+  }
+
+  public void testDoesNotAllocateWhileExpandingAndCollapsingAfterWarmUp() throws Exception {
+    for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+      expandAndCollapse();
+    }
+
+    isMeasuring = true;
+    for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+      expandAndCollapse();
+    }
+
+    assertEquals("Objects allocated while expanding and collapsing", 0, allocationCount);
+  }
+
+  private void givenAnExpandableSelectorLaidOut() {
+    expandableSelector = new ExpandableSelector(getInstrumentation().getTargetContext());
+    expandableSelector.setLayoutParams(new FrameLayout.LayoutParams(
+        ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+    expandableSelector.setAdaptiveAnimationQuality(false);
+    List<ExpandableItem> expandableItems = new ArrayList<ExpandableItem>();
+    for (int i = 0; i < NUMBER_OF_ITEMS; i++) {
+      expandableItems.add(new ExpandableItem(String.valueOf(i)));
+    }
+    expandableSelector.showExpandableItems(expandableItems);
+    expandableSelector.setExpandableSelectorListener(new ExpandableSelectorListener() {
+      @Override public void onCollapse() {
+      }
+
+      @Override public void onExpand() {
+      }
+
+      @Override public void onCollapsed() {
+        onAnimationFinished();
+      }
+
+      @Override public void onExpanded() {
+        onAnimationFinished();
+      }
+    });
+    expandableSelector.setAnimationFrameListener(new ExpandableSelectorAnimator.FrameListener() {
+      @Override public void onAnimationFrame(float fraction) {
+        if (isAnimationRunning && !isChangingState && !isCountingAllocations) {
+          startCountingAllocations();
+        }
+      }
+    });
+    layOut();
+  }
+
+  private void layOut() {
+    int widthMeasureSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+    int heightMeasureSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+    expandableSelector.measure(widthMeasureSpec, heightMeasureSpec);
+    expandableSelector.layout(0, 0, expandableSelector.getMeasuredWidth(),
+        expandableSelector.getMeasuredHeight());
+  }
+
+  private void expandAndCollapse() throws InterruptedException {
+    changeState(true);
+    changeState(false);
+  }
+
+  private void changeState(final boolean expand) throws InterruptedException {
+    getInstrumentation().runOnMainSync(new Runnable() {
+      @Override public void run() {
+        isAnimationRunning = true;
+        isChangingState = true;
+        startCountingAllocations();
+        if (expand) {
+          expandableSelector.expand();
+        } else {
+          expandableSelector.collapse();
+        }
+        stopCountingAllocations();
+        isChangingState = false;
+      }
+    });
+    assertTrue("Animation not finished",
+        animationsFinished.tryAcquire(ANIMATION_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    getInstrumentation().runOnMainSync(new Runnable() {
+      @Override public void run() {
+        layOut();
+      }
+    });
+  }
+
+  private void onAnimationFinished() {
+    stopCountingAllocations();
+    isAnimationRunning = false;
+    animationsFinished.release();
+  }
+
+  private void startCountingAllocations() {
+    if (!isMeasuring) {
+      return;
+    }
+    Debug.resetThreadAllocCount();
+    Debug.startAllocCounting();
+    isCountingAllocations = true;
+  }
+
+  private void stopCountingAllocations() {
+    if (!isCountingAllocations) {
+      return;
+    }
+    Debug.stopAllocCounting();
+    allocationCount += Debug.getThreadAllocCount();
+    isCountingAllocations = false;
+  }
+}
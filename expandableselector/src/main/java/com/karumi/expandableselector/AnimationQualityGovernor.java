@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2015 Karumi.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.karumi.expandableselector;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.os.PowerManager;
+import android.provider.Settings;
+
+/**
+ * Decides the quality of the collapse/expand animations from the frames dropped by the previous
+ * animations and the system configuration. Every time more than a fraction of the frames of
+ * consecutive animations are dropped the quality is stepped down one level: first the animations
+ * are shortened, then the container is resized without animation and finally the state is changed
+ * instantly. The quality is never stepped up again for the same widget. The animations are
+ * changed instantly if the system animator duration scale is 0, from Android 4.2, and the
+ * container is not animated while the power save mode is on, from Android 5.0.
+ */
+class AnimationQualityGovernor {
+
+  static final int QUALITY_FULL = 0;
+  static final int QUALITY_REDUCED = 1;
+  static final int QUALITY_NO_CONTAINER_ANIMATION = 2;
+  static final int QUALITY_INSTANT = 3;
+
+  private static final float JANKY_DROPPED_FRAMES_RATIO = 0.2f;
+  private static final int JANKY_ANIMATIONS_TO_STEP_DOWN = 2;
+  private static final float REDUCED_DURATION_FACTOR = 0.5f;
+
+  private final Context context;
+
+  private boolean isEnabled;
+  private int measuredQuality = QUALITY_FULL;
+  private int consecutiveJankyAnimations;
+
+  AnimationQualityGovernor(Context context) {
+    this.context = context.getApplicationContext();
+  }
+
+  /**
+   * Returns true if the quality is adapted to the device. If not, every animation is performed
+   * with the full quality.
+   */
+  boolean isEnabled() {
+    return isEnabled;
+  }
+
+  void setEnabled(boolean isEnabled) {
+    this.isEnabled = isEnabled;
+  }
+
+  /**
+   * Returns the quality the next collapse/expand animation has to be performed with.
+   */
+  int getQuality() {
+    if (!isEnabled) {
+      return QUALITY_FULL;
+    }
+    return Math.max(measuredQuality, getSystemQuality());
+  }
+
+  /**
+   * Returns the factor to apply to the animation duration for the quality passed as parameter.
+   */
+  float getDurationFactor(int quality) {
+    return quality >= QUALITY_REDUCED ? REDUCED_DURATION_FACTOR : 1;
+  }
+
+  /**
+   * Updates the quality using the frames measured during the last collapse/expand animation.
+   */
+  void onAnimationMetrics(ExpandableSelectorMetrics metrics) {
+    if (!isEnabled || measuredQuality == QUALITY_INSTANT) {
+      return;
+    }
+    int expectedFrames = metrics.getFrameCount() + metrics.getDroppedFrames();
+    if (expectedFrames == 0) {
+      return;
+    }
+    float droppedFramesRatio = (float) metrics.getDroppedFrames() / expectedFrames;
+    if (droppedFramesRatio <= JANKY_DROPPED_FRAMES_RATIO) {
+      consecutiveJankyAnimations = 0;
+      return;
+    }
+    consecutiveJankyAnimations++;
+    if (consecutiveJankyAnimations >= JANKY_ANIMATIONS_TO_STEP_DOWN) {
+      consecutiveJankyAnimations = 0;
+      measuredQuality++;
+    }
+  }
+
+  private int getSystemQuality() {
+    if (getAnimatorDurationScale() == 0) {
+      return QUALITY_INSTANT;
+    }
+    if (isPowerSaveMode()) {
+      return QUALITY_NO_CONTAINER_ANIMATION;
+    }
+    return QUALITY_FULL;
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+  private float getAnimatorDurationScale() {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR1) {
+      return 1;
+    }
+    return Settings.Global.getFloat(context.getContentResolver(),
+        Settings.Global.ANIMATOR_DURATION_SCALE, 1);
+  }
+
+  @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+  private boolean isPowerSaveMode() {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+      return false;
+    }
+    PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+    return powerManager.isPowerSaveMode();
+  }
+}
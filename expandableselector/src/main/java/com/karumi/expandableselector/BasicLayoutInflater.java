@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2015 Karumi.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.karumi.expandableselector;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.View;
+
+/**
+ * LayoutInflater without any factory configured used to inflate the Button/ImageButton widgets
+ * outside the UI thread. Every instance has its own constructor arguments lock, so inflating
+ * outside the UI thread doesn't contend with the LayoutInflater shared by the Activity.
+ */
+class BasicLayoutInflater extends LayoutInflater {
+
+  private static final String WIDGET_CLASS_PREFIX = "android.widget.";
+
+  BasicLayoutInflater(Context context) {
+    super(context);
+  }
+
+  @Override public LayoutInflater cloneInContext(Context newContext) {
+    return new BasicLayoutInflater(newContext);
+  }
+
+  @Override protected View onCreateView(String name, AttributeSet attrs)
+      throws ClassNotFoundException {
+    try {
+      return createView(name, WIDGET_CLASS_PREFIX, attrs);
+    } catch (ClassNotFoundException e) {
+      return super.onCreateView(name, attrs);
+    }
+  }
+}
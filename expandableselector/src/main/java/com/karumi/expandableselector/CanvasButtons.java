@@ -0,0 +1,488 @@
+/*
+ * Copyright (C) 2015 Karumi.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.karumi.expandableselector;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.text.TextPaint;
+import android.util.SparseArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.ImageButton;
+import com.karumi.expandableselector.animation.ExpandableSelectorAnimator;
+
+/**
+ * Renders the buttons of an ExpandableSelector directly on its canvas without creating a widget
+ * per ExpandableItem. The style of every view type is resolved once from a Button/ImageButton
+ * inflated from the item layouts and never attached, the template, which is measured instead of
+ * the buttons because every button of the same view type shares its size. Every button just
+ * stores the ExpandableItem bound, the shared Drawable instances used as background and image,
+ * the title transformed as the template would show it and its translation and visibility. The
+ * title width is obtained from the TitleCache the first time it's drawn, so titles precomputed
+ * outside the UI thread after being bound are not measured again. Buttons are placed at the
+ * bottom center of the container as the attached widgets are. The pressed state is applied to
+ * the shared drawables just while the pressed button is drawn, so drawable state transitions are
+ * not animated.
+ */
+class CanvasButtons implements ExpandableSelectorAnimator.Buttons {
+
+  static final int NO_POSITION = -1;
+
+  private static final float UNKNOWN_WIDTH = -1;
+
+  private static final int[] ENABLED_STATE_SET = new int[] { android.R.attr.state_enabled };
+  private static final int[] PRESSED_ENABLED_STATE_SET =
+      new int[] { android.R.attr.state_enabled, android.R.attr.state_pressed };
+
+  private final ViewGroup container;
+  private final View[] templates = new View[2];
+  private final int[] lefts = new int[2];
+  private final int[] tops = new int[2];
+  private final SparseArray<Drawable> drawables = new SparseArray<Drawable>();
+
+  private Slot[] slots = new Slot[0];
+  private int numberOfButtons;
+  private int pressedButtonPosition = NO_POSITION;
+
+  CanvasButtons(ViewGroup container) {
+    this.container = container;
+  }
+
+  @Override public int size() {
+    return numberOfButtons;
+  }
+
+  @Override public float getTranslationY(int buttonPosition) {
+    return slots[buttonPosition].translationY;
+  }
+
+  @Override public void setTranslationY(int buttonPosition, float translationY) {
+    Slot slot = slots[buttonPosition];
+    if (slot.translationY != translationY) {
+      slot.translationY = translationY;
+      container.invalidate();
+    }
+  }
+
+  @Override public void setVisibility(int buttonPosition, int visibility) {
+    Slot slot = slots[buttonPosition];
+    if (slot.visibility != visibility) {
+      slot.visibility = visibility;
+      container.invalidate();
+    }
+  }
+
+  @Override public int getRowHeight(int buttonPosition) {
+    View template = getTemplate(slots[buttonPosition].viewType);
+    ViewGroup.MarginLayoutParams layoutParams =
+        (ViewGroup.MarginLayoutParams) template.getLayoutParams();
+    return getHeight(template) + layoutParams.rightMargin + layoutParams.leftMargin;
+  }
+
+  @Override public int getCollapsedHeight(int buttonPosition) {
+    View template = getTemplate(slots[buttonPosition].viewType);
+    ViewGroup.MarginLayoutParams layoutParams =
+        (ViewGroup.MarginLayoutParams) template.getLayoutParams();
+    return getHeight(template) + layoutParams.topMargin + layoutParams.bottomMargin;
+  }
+
+  @Override public View getView(int buttonPosition) {
+    return null;
+  }
+
+  int getVisibility(int buttonPosition) {
+    return slots[buttonPosition].visibility;
+  }
+
+  /**
+   * Changes the number of buttons to the one passed as parameter removing every ExpandableItem
+   * bound. The buttons are invisible and not translated until they are configured again.
+   */
+  void reset(int numberOfButtons) {
+    ensureCapacity(numberOfButtons);
+    this.numberOfButtons = numberOfButtons;
+    for (int i = 0; i < numberOfButtons; i++) {
+      slots[i].reset();
+    }
+    pressedButtonPosition = NO_POSITION;
+    container.invalidate();
+  }
+
+  /**
+   * Changes the buttons to the ones in the old positions passed as parameter keeping their
+   * ExpandableItem, translation and visibility. The new buttons, configured with NO_POSITION, are
+   * empty and invisible until they are configured.
+   */
+  void rearrange(int[] oldButtonPositions) {
+    Slot[] oldSlots = slots;
+    boolean[] reusedSlots = new boolean[oldSlots.length];
+    int numberOfButtons = oldButtonPositions.length;
+    Slot[] slots = new Slot[Math.max(numberOfButtons, oldSlots.length)];
+    for (int i = 0; i < numberOfButtons; i++) {
+      int oldButtonPosition = oldButtonPositions[i];
+      if (oldButtonPosition != NO_POSITION) {
+        slots[i] = oldSlots[oldButtonPosition];
+        reusedSlots[oldButtonPosition] = true;
+      }
+    }
+    int nextOldSlot = 0;
+    for (int i = 0; i < slots.length; i++) {
+      if (slots[i] != null && i < numberOfButtons) {
+        continue;
+      }
+      while (nextOldSlot < oldSlots.length && reusedSlots[nextOldSlot]) {
+        nextOldSlot++;
+      }
+      Slot slot = nextOldSlot < oldSlots.length ? oldSlots[nextOldSlot++] : new Slot();
+      slot.reset();
+      slots[i] = slot;
+    }
+    this.slots = slots;
+    this.numberOfButtons = numberOfButtons;
+    pressedButtonPosition = NO_POSITION;
+    container.invalidate();
+  }
+
+  /**
+   * Configures the button in the position passed as parameter to render the ExpandableItem passed
+   * as parameter. Nothing is done if the same ExpandableItem was already bound. Returns true if the
+   * view type of the button has changed, so the container has to be measured again.
+   */
+  boolean bind(int buttonPosition, ExpandableItem expandableItem) {
+    Slot slot = slots[buttonPosition];
+    if (expandableItem.equals(slot.expandableItem)) {
+      return false;
+    }
+    int viewType = ExpandableItemViewPool.getViewType(expandableItem);
+    boolean hasViewTypeChanged = slot.expandableItem == null || slot.viewType != viewType;
+    View template = getTemplate(viewType);
+    slot.expandableItem = expandableItem;
+    slot.viewType = viewType;
+    slot.background = expandableItem.hasBackgroundId()
+        ? getDrawable(expandableItem.getBackgroundId()) : template.getBackground();
+    if (viewType == ExpandableItemViewPool.TITLE_VIEW_TYPE) {
+      Button button = (Button) template;
+      slot.title = TitleCache.getTitle(expandableItem.getTitle(), button);
+      slot.titleWidth = UNKNOWN_WIDTH;
+      slot.image = null;
+    } else {
+      slot.title = null;
+      slot.image = expandableItem.hasResourceId()
+          ? getDrawable(expandableItem.getResourceId()) : ((ImageButton) template).getDrawable();
+    }
+    container.invalidate();
+    return hasViewTypeChanged;
+  }
+
+  /**
+   * Returns the Button used to resolve the style of the titles. It's created if needed.
+   */
+  Button getTitleTemplate() {
+    return (Button) getTemplate(ExpandableItemViewPool.TITLE_VIEW_TYPE);
+  }
+
+  /**
+   * Measures the templates of the view types shown using the measure specs of the container.
+   */
+  void measure(int widthMeasureSpec, int heightMeasureSpec) {
+    int paddingWidth = container.getPaddingLeft() + container.getPaddingRight();
+    int paddingHeight = container.getPaddingTop() + container.getPaddingBottom();
+    for (View template : templates) {
+      if (template == null) {
+        continue;
+      }
+      ViewGroup.MarginLayoutParams layoutParams =
+          (ViewGroup.MarginLayoutParams) template.getLayoutParams();
+      template.measure(ViewGroup.getChildMeasureSpec(widthMeasureSpec,
+          paddingWidth + layoutParams.leftMargin + layoutParams.rightMargin, layoutParams.width),
+          ViewGroup.getChildMeasureSpec(heightMeasureSpec,
+              paddingHeight + layoutParams.topMargin + layoutParams.bottomMargin,
+              layoutParams.height));
+    }
+  }
+
+  /**
+   * Returns the widest button size, margins included, obtained in the last measure pass.
+   */
+  int getMeasuredWidth() {
+    int maxWidth = 0;
+    for (int i = 0; i < numberOfButtons; i++) {
+      Slot slot = slots[i];
+      if (slot.expandableItem == null) {
+        continue;
+      }
+      View template = templates[slot.viewType];
+      ViewGroup.MarginLayoutParams layoutParams =
+          (ViewGroup.MarginLayoutParams) template.getLayoutParams();
+      maxWidth = Math.max(maxWidth,
+          template.getMeasuredWidth() + layoutParams.leftMargin + layoutParams.rightMargin);
+    }
+    return maxWidth;
+  }
+
+  /**
+   * Returns the tallest button size, margins included, obtained in the last measure pass.
+   */
+  int getMeasuredHeight() {
+    int maxHeight = 0;
+    for (int i = 0; i < numberOfButtons; i++) {
+      Slot slot = slots[i];
+      if (slot.expandableItem == null) {
+        continue;
+      }
+      View template = templates[slot.viewType];
+      ViewGroup.MarginLayoutParams layoutParams =
+          (ViewGroup.MarginLayoutParams) template.getLayoutParams();
+      maxHeight = Math.max(maxHeight,
+          template.getMeasuredHeight() + layoutParams.topMargin + layoutParams.bottomMargin);
+    }
+    return maxHeight;
+  }
+
+  /**
+   * Places the buttons of every view type at the bottom center of a container with the size
+   * passed as parameter as a child with Gravity.BOTTOM | Gravity.CENTER_HORIZONTAL would be placed.
+   */
+  void layout(int width, int height) {
+    int availableWidth = width - container.getPaddingLeft() - container.getPaddingRight();
+    for (int viewType = 0; viewType < templates.length; viewType++) {
+      View template = templates[viewType];
+      if (template == null) {
+        continue;
+      }
+      ViewGroup.MarginLayoutParams layoutParams =
+          (ViewGroup.MarginLayoutParams) template.getLayoutParams();
+      lefts[viewType] = container.getPaddingLeft()
+          + (availableWidth - template.getMeasuredWidth()) / 2 + layoutParams.leftMargin
+          - layoutParams.rightMargin;
+      tops[viewType] = height - container.getPaddingBottom() - layoutParams.bottomMargin
+          - template.getMeasuredHeight();
+    }
+  }
+
+  /**
+   * Draws every visible button in its translated position.
+   */
+  void draw(Canvas canvas) {
+    for (int i = 0; i < numberOfButtons; i++) {
+      Slot slot = slots[i];
+      if (slot.visibility != View.VISIBLE || slot.expandableItem == null) {
+        continue;
+      }
+      View template = templates[slot.viewType];
+      int width = template.getMeasuredWidth();
+      int height = template.getMeasuredHeight();
+      int[] stateSet = i == pressedButtonPosition ? PRESSED_ENABLED_STATE_SET : ENABLED_STATE_SET;
+      int saveCount = canvas.save();
+      canvas.translate(lefts[slot.viewType], tops[slot.viewType] + slot.translationY);
+      canvas.clipRect(0, 0, width, height);
+      drawDrawable(canvas, slot.background, stateSet, 0, 0, width, height);
+      if (slot.title != null) {
+        drawTitle(canvas, (Button) template, slot, stateSet);
+      } else if (slot.image != null) {
+        drawImage(canvas, template, slot.image, stateSet);
+      }
+      canvas.restoreToCount(saveCount);
+    }
+  }
+
+  /**
+   * Returns the position of the visible button drawn under the coordinates passed as parameter or
+   * NO_POSITION if there is no button there. Buttons drawn over the rest are checked first.
+   */
+  int findButtonUnder(float x, float y) {
+    for (int i = numberOfButtons - 1; i >= 0; i--) {
+      Slot slot = slots[i];
+      if (slot.visibility != View.VISIBLE || slot.expandableItem == null) {
+        continue;
+      }
+      View template = templates[slot.viewType];
+      int left = lefts[slot.viewType];
+      float top = tops[slot.viewType] + slot.translationY;
+      if (x >= left && x < left + template.getMeasuredWidth()
+          && y >= top && y < top + template.getMeasuredHeight()) {
+        return i;
+      }
+    }
+    return NO_POSITION;
+  }
+
+  int getPressedButtonPosition() {
+    return pressedButtonPosition;
+  }
+
+  /**
+   * Configures the button drawn pressed. Use NO_POSITION to release the button pressed.
+   */
+  void setPressedButtonPosition(int pressedButtonPosition) {
+    if (this.pressedButtonPosition != pressedButtonPosition) {
+      this.pressedButtonPosition = pressedButtonPosition;
+      container.invalidate();
+    }
+  }
+
+  private void ensureCapacity(int numberOfButtons) {
+    if (slots.length >= numberOfButtons) {
+      return;
+    }
+    Slot[] slots = new Slot[numberOfButtons];
+    System.arraycopy(this.slots, 0, slots, 0, this.slots.length);
+    for (int i = this.slots.length; i < numberOfButtons; i++) {
+      slots[i] = new Slot();
+    }
+    this.slots = slots;
+  }
+
+  /**
+   * Returns the widget used to resolve the style of the view type passed as parameter. It's
+   * inflated using the container to generate its layout params but it's never attached.
+   */
+  private View getTemplate(int viewType) {
+    View template = templates[viewType];
+    if (template == null) {
+      int layoutId = viewType == ExpandableItemViewPool.TITLE_VIEW_TYPE
+          ? R.layout.expandable_item_button : R.layout.expandable_item_image_button;
+      template = LayoutInflater.from(container.getContext()).inflate(layoutId, container, false);
+      templates[viewType] = template;
+    }
+    return template;
+  }
+
+  /**
+   * Returns the measured height of the template passed as parameter. Templates not measured yet
+   * are measured using the size configured in their layout params.
+   */
+  private int getHeight(View template) {
+    if (template.getMeasuredHeight() == 0) {
+      ViewGroup.LayoutParams layoutParams = template.getLayoutParams();
+      int unspecified = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+      template.measure(ViewGroup.getChildMeasureSpec(unspecified, 0, layoutParams.width),
+          ViewGroup.getChildMeasureSpec(unspecified, 0, layoutParams.height));
+    }
+    return template.getMeasuredHeight();
+  }
+
+  /**
+   * Returns the Drawable instance shared by every button using the resource passed as parameter.
+   */
+  private Drawable getDrawable(int drawableId) {
+    Drawable drawable = drawables.get(drawableId);
+    if (drawable == null) {
+      Context context = container.getContext();
+      drawable = DrawableCache.getInstance(context).getDrawable(context, drawableId);
+      drawables.put(drawableId, drawable);
+    }
+    return drawable;
+  }
+
+  private void drawTitle(Canvas canvas, Button template, Slot slot, int[] stateSet) {
+    TextPaint paint = template.getPaint();
+    if (slot.titleWidth == UNKNOWN_WIDTH) {
+      slot.titleWidth = TitleCache.getInstance().getWidth(slot.title, paint);
+    }
+    ColorStateList textColors = template.getTextColors();
+    paint.setColor(textColors.getColorForState(stateSet, textColors.getDefaultColor()));
+    int availableWidth =
+        template.getMeasuredWidth() - template.getPaddingLeft() - template.getPaddingRight();
+    int availableHeight =
+        template.getMeasuredHeight() - template.getPaddingTop() - template.getPaddingBottom();
+    float ascent = paint.ascent();
+    float textHeight = paint.descent() - ascent;
+    float x = template.getPaddingLeft() + (availableWidth - slot.titleWidth) / 2;
+    float y = template.getPaddingTop() + (availableHeight - textHeight) / 2 - ascent;
+    canvas.drawText(slot.title, x, y, paint);
+  }
+
+  /**
+   * Draws the image passed as parameter centered inside the template padding and scaled to fit it
+   * keeping its aspect ratio, as ImageButton does with its default scale type.
+   */
+  private void drawImage(Canvas canvas, View template, Drawable image, int[] stateSet) {
+    int availableWidth =
+        template.getMeasuredWidth() - template.getPaddingLeft() - template.getPaddingRight();
+    int availableHeight =
+        template.getMeasuredHeight() - template.getPaddingTop() - template.getPaddingBottom();
+    int imageWidth = image.getIntrinsicWidth();
+    int imageHeight = image.getIntrinsicHeight();
+    if (imageWidth <= 0 || imageHeight <= 0) {
+      imageWidth = availableWidth;
+      imageHeight = availableHeight;
+    } else {
+      float scale = Math.min((float) availableWidth / imageWidth,
+          (float) availableHeight / imageHeight);
+      imageWidth = Math.round(imageWidth * scale);
+      imageHeight = Math.round(imageHeight * scale);
+    }
+    int left = template.getPaddingLeft() + (availableWidth - imageWidth) / 2;
+    int top = template.getPaddingTop() + (availableHeight - imageHeight) / 2;
+    drawDrawable(canvas, image, stateSet, left, top, left + imageWidth, top + imageHeight);
+  }
+
+  /**
+   * Draws a shared Drawable instance in the bounds and state passed as parameter. The drawable is
+   * returned to the not pressed state once drawn, so the next button finds it ready.
+   */
+  private void drawDrawable(Canvas canvas, Drawable drawable, int[] stateSet, int left, int top,
+      int right, int bottom) {
+    if (drawable == null) {
+      return;
+    }
+    drawable.setBounds(left, top, right, bottom);
+    boolean isPressed = stateSet == PRESSED_ENABLED_STATE_SET;
+    if (isPressed) {
+      drawable.setState(stateSet);
+      drawable.jumpToCurrentState();
+    } else if (drawable.getState() != ENABLED_STATE_SET) {
+      drawable.setState(ENABLED_STATE_SET);
+      drawable.jumpToCurrentState();
+    }
+    drawable.draw(canvas);
+    if (isPressed) {
+      drawable.setState(ENABLED_STATE_SET);
+      drawable.jumpToCurrentState();
+    }
+  }
+
+  /**
+   * State of a single button. Instances are reused when the number of buttons changes.
+   */
+  private static class Slot {
+
+    private ExpandableItem expandableItem;
+    private int viewType;
+    private Drawable background;
+    private Drawable image;
+    private String title;
+    private float titleWidth;
+    private float translationY;
+    private int visibility;
+
+    void reset() {
+      expandableItem = null;
+      background = null;
+      image = null;
+      title = null;
+      titleWidth = UNKNOWN_WIDTH;
+      translationY = 0;
+      visibility = View.INVISIBLE;
+    }
+  }
+}
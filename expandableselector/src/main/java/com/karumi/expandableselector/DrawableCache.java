@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2015 Karumi.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.karumi.expandableselector;
+
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.util.LruCache;
+
+/**
+ * Process-wide cache used to obtain the Drawable instances configured as ExpandableItem background
+ * or resource. Just the Drawable.ConstantState of every resource is stored, so the Drawable
+ * instances returned share their bitmaps and the resource is decoded just the first time. From
+ * Android 5.0 drawables are loaded using the theme of the Context the ExpandableSelector was
+ * created with, so theme attributes like ?android:colorControlHighlight are resolved, and the
+ * ConstantState is cached per theme. The cache is bounded to a fixed number of resources and it's
+ * cleared when the system is running low on memory or the configuration changes. This class can
+ * be used outside the UI thread.
+ */
+class DrawableCache implements ComponentCallbacks2 {
+
+  private static final int MAX_CACHED_DRAWABLES = 64;
+
+  private static DrawableCache instance;
+
+  private final LruCache<Key, Drawable.ConstantState> constantStates =
+      new LruCache<Key, Drawable.ConstantState>(MAX_CACHED_DRAWABLES);
+
+  private DrawableCache() {
+  }
+
+  /**
+   * Returns the DrawableCache instance shared by every ExpandableSelector.
+   */
+  static synchronized DrawableCache getInstance(Context context) {
+    if (instance == null) {
+      instance = new DrawableCache();
+      context.getApplicationContext().registerComponentCallbacks(instance);
+    }
+    return instance;
+  }
+
+  /**
+   * Returns a new Drawable instance associated to the resource identifier passed as parameter
+   * styled with the theme of the Context passed as parameter.
+   */
+  Drawable getDrawable(Context context, int drawableId) {
+    Resources resources = context.getResources();
+    Resources.Theme theme = isThemeSupported() ? context.getTheme() : null;
+    Key key = new Key(drawableId, theme);
+    Drawable.ConstantState constantState = constantStates.get(key);
+    if (constantState != null) {
+      return newDrawable(constantState, resources, theme);
+    }
+    Drawable drawable = loadDrawable(resources, theme, drawableId);
+    constantState = drawable.getConstantState();
+    if (constantState != null) {
+      constantStates.put(key, constantState);
+    }
+    return drawable;
+  }
+
+  @Override public void onTrimMemory(int level) {
+    if (level >= TRIM_MEMORY_RUNNING_LOW) {
+      constantStates.evictAll();
+    }
+  }
+
+  @Override public void onLowMemory() {
+    constantStates.evictAll();
+  }
+
+  @Override public void onConfigurationChanged(Configuration newConfig) {
+    constantStates.evictAll();
+  }
+
+  private boolean isThemeSupported() {
+    return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP;
+  }
+
+  @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+  private Drawable loadDrawable(Resources resources, Resources.Theme theme, int drawableId) {
+    if (theme == null) {
+      // The themed overload is not available before Android 5.0.
+      @SuppressWarnings("deprecation") Drawable drawable = resources.getDrawable(drawableId);
+      return drawable;
+    }
+    return resources.getDrawable(drawableId, theme);
+  }
+
+  @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+  private Drawable newDrawable(Drawable.ConstantState constantState, Resources resources,
+      Resources.Theme theme) {
+    if (theme == null) {
+      return constantState.newDrawable(resources);
+    }
+    return constantState.newDrawable(resources, theme);
+  }
+
+  /**
+   * Identifies a cached Drawable.ConstantState by its resource identifier and the theme used to
+   * load it. Themes are compared by identity.
+   */
+  private static class Key {
+
+    private final int drawableId;
+    private final Resources.Theme theme;
+
+    Key(int drawableId, Resources.Theme theme) {
+      this.drawableId = drawableId;
+      this.theme = theme;
+    }
+
+    @Override public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return drawableId == key.drawableId && theme == key.theme;
+    }
+
+    @Override public int hashCode() {
+      return 31 * drawableId + (theme != null ? System.identityHashCode(theme) : 0);
+    }
+  }
+}
@@ -19,31 +19,61 @@ package com.karumi.expandableselector;
 /**
  * Contains all the information needed to render a expandable item inside a ExpandableSelector
  * widget. The information you can render is a Drawable identifier, a String used as title and a
- * Drawable used as background.
+ * Drawable used as background. ExpandableItem instances are immutable and two instances with the
+ * same information are equal, so ExpandableSelector can skip the update of Button/ImageButton
+ * widgets already showing an equal ExpandableItem. An optional stable identifier can be configured
+ * to find and update the ExpandableItem by identifier instead of position.
  */
-public class ExpandableItem {
+public final class ExpandableItem {
 
   private static final int NO_ID = -1;
+  private static final long NO_ITEM_ID = -1;
 
-  private int resourceId = NO_ID;
+  private final int resourceId;
   private final int backgroundId;
   private final String title;
+  private final long id;
+  private final int hashCode;
 
   public ExpandableItem() {
-    this(NO_ID, null);
+    this(NO_ID, NO_ID, null, NO_ITEM_ID);
   }
 
   public ExpandableItem(int backgroundId) {
-    this(backgroundId, null);
+    this(NO_ID, backgroundId, null, NO_ITEM_ID);
   }
 
   public ExpandableItem(String title) {
-    this(NO_ID, title);
+    this(NO_ID, NO_ID, title, NO_ITEM_ID);
   }
 
-  private ExpandableItem(int backgroundId, String title) {
+  private ExpandableItem(int resourceId, int backgroundId, String title, long id) {
+    this.resourceId = resourceId;
     this.backgroundId = backgroundId;
     this.title = title;
+    this.id = id;
+    this.hashCode = calculateHashCode();
+  }
+
+  /**
+   * Returns a new ExpandableItem with the same information than this one but showing the Drawable
+   * identifier passed as parameter.
+   */
+  public ExpandableItem withResourceId(int resourceId) {
+    return new ExpandableItem(resourceId, backgroundId, title, id);
+  }
+
+  /**
+   * Returns a new ExpandableItem with the same information than this one but identified by the
+   * stable identifier passed as parameter. Identifiers have to be unique inside the
+   * List<ExpandableItem> shown by a ExpandableSelector and -1 can't be used.
+   */
+  public ExpandableItem withId(long id) {
+    return new ExpandableItem(resourceId, backgroundId, title, id);
+  }
+
+  public long getId() {
+    return id;
   }
 
   public int getBackgroundId() {
@@ -54,10 +84,6 @@ public class ExpandableItem {
     return title;
   }
 
-  public void setResourceId(int resourceId) {
-    this.resourceId = resourceId;
-  }
-
   public int getResourceId() {
     return resourceId;
   }
@@ -73,4 +99,44 @@ public class ExpandableItem {
   public boolean hasTitle() {
     return title != null;
   }
+
+  public boolean hasId() {
+    return id != NO_ITEM_ID;
+  }
+
+  @Override public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ExpandableItem)) {
+      return false;
+    }
+    ExpandableItem that = (ExpandableItem) o;
+    return hashCode == that.hashCode
+        && id == that.id
+        && resourceId == that.resourceId
+        && backgroundId == that.backgroundId
+        && (title == null ? that.title == null : title.equals(that.title));
+  }
+
+  @Override public int hashCode() {
+    return hashCode;
+  }
+
+  @Override public String toString() {
+    return "ExpandableItem{"
+        + "resourceId=" + resourceId
+        + ", backgroundId=" + backgroundId
+        + ", title='" + title + '\''
+        + ", id=" + id
+        + '}';
+  }
+
+  private int calculateHashCode() {
+    int result = resourceId;
+    result = 31 * result + backgroundId;
+    result = 31 * result + (title != null ? title.hashCode() : 0);
+    result = 31 * result + (int) (id ^ (id >>> 32));
+    return result;
+  }
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2015 Karumi.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.karumi.expandableselector;
+
+import android.view.View;
+import android.view.ViewGroup;
+import java.util.LinkedList;
+
+/**
+ * Keeps the Button/ImageButton widgets used to render ExpandableItems grouped by the kind of
+ * ExpandableItem they are able to render. Widgets stored here can be rebound to a different
+ * ExpandableItem of the same kind instead of inflating a new one. Widgets are returned in the same
+ * order they were stored to keep the drawing order of the reused widgets. Every ExpandableSelector
+ * creates its own pool but the same instance can be shared between ExpandableSelector widgets
+ * created with the same Context and item style, for instance the ones shown in the rows of a
+ * RecyclerView, configuring it with ExpandableSelector.setExpandableItemViewPool.
+ */
+public class ExpandableItemViewPool {
+
+  static final int TITLE_VIEW_TYPE = 0;
+  static final int ICON_VIEW_TYPE = 1;
+
+  private final Scrap titleViews = new Scrap();
+  private final Scrap iconViews = new Scrap();
+
+  /**
+   * Returns the kind of widget needed to render the ExpandableItem passed as parameter.
+   */
+  static int getViewType(ExpandableItem expandableItem) {
+    return expandableItem.hasTitle() ? TITLE_VIEW_TYPE : ICON_VIEW_TYPE;
+  }
+
+  /**
+   * Returns the kind of ExpandableItem the widget passed as parameter is able to render.
+   */
+  static int getViewType(View view) {
+    return (Integer) view.getTag(R.id.expandable_selector_view_type);
+  }
+
+  /**
+   * Returns true if the view passed as parameter was created to render an ExpandableItem.
+   */
+  static boolean isExpandableItemView(View view) {
+    return view.getTag(R.id.expandable_selector_view_type) != null;
+  }
+
+  /**
+   * Marks the widget passed as parameter as able to render ExpandableItems of the given kind.
+   */
+  static void setViewType(View view, int viewType) {
+    view.setTag(R.id.expandable_selector_view_type, viewType);
+  }
+
+  /**
+   * Stores a widget to be reused later. The widget is not removed from its parent, widgets still
+   * attached to a parent are returned before the detached ones to be rebound in place.
+   */
+  void put(View view) {
+    Scrap scrap = getScrap(getViewType(view));
+    if (view.getParent() != null) {
+      scrap.attachedViews.addLast(view);
+    } else {
+      scrap.detachedViews.addLast(view);
+    }
+  }
+
+  /**
+   * Returns a previously stored widget able to render the kind of ExpandableItem passed as
+   * parameter or null if there is no widget available.
+   */
+  View get(int viewType) {
+    Scrap scrap = getScrap(viewType);
+    View view = scrap.attachedViews.pollFirst();
+    if (view == null) {
+      view = scrap.detachedViews.pollFirst();
+    }
+    return view;
+  }
+
+  /**
+   * Returns the number of stored widgets able to render the kind of ExpandableItem passed as
+   * parameter.
+   */
+  int size(int viewType) {
+    Scrap scrap = getScrap(viewType);
+    return scrap.attachedViews.size() + scrap.detachedViews.size();
+  }
+
+  /**
+   * Removes every stored widget from the ViewGroup passed as parameter. The widgets are still
+   * available to be reused.
+   */
+  void detachFrom(ViewGroup parent) {
+    titleViews.detachFrom(parent);
+    iconViews.detachFrom(parent);
+  }
+
+  private Scrap getScrap(int viewType) {
+    return viewType == TITLE_VIEW_TYPE ? titleViews : iconViews;
+  }
+
+  private static class Scrap {
+
+    private final LinkedList<View> attachedViews = new LinkedList<View>();
+    private final LinkedList<View> detachedViews = new LinkedList<View>();
+
+    private void detachFrom(ViewGroup parent) {
+      for (View view : attachedViews) {
+        if (view.getParent() == parent) {
+          parent.removeView(view);
+        }
+        detachedViews.addLast(view);
+      }
+      attachedViews.clear();
+    }
+  }
+}
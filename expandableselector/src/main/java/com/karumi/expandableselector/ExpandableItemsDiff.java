@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2015 Karumi.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.karumi.expandableselector;
+
+import java.util.List;
+
+/**
+ * Compares two List<ExpandableItem> and calculates, for every position in the new list, the
+ * position in the old list whose widget can be reused to render it and if that widget has to be
+ * rebound. The longest common subsequence of items is kept in place, the rest of the new items
+ * reuse the widgets of the removed items with the same content first and the same kind later.
+ * This class doesn't touch any view and can be used outside the UI thread.
+ */
+class ExpandableItemsDiff {
+
+  static final int NO_POSITION = -1;
+
+  private final int[] oldPositions;
+  private final boolean[] rebinds;
+  private final boolean hasStructuralChanges;
+
+  private ExpandableItemsDiff(int[] oldPositions, boolean[] rebinds,
+      boolean hasStructuralChanges) {
+    this.oldPositions = oldPositions;
+    this.rebinds = rebinds;
+    this.hasStructuralChanges = hasStructuralChanges;
+  }
+
+  /**
+   * Calculates the changes needed to render newItems using the widgets already used to render
+   * oldItems.
+   */
+  static ExpandableItemsDiff calculate(List<ExpandableItem> oldItems,
+      List<ExpandableItem> newItems) {
+    int oldSize = oldItems.size();
+    int newSize = newItems.size();
+    int[] oldPositions = new int[newSize];
+    boolean[] rebinds = new boolean[newSize];
+    boolean[] usedOldPositions = new boolean[oldSize];
+    for (int i = 0; i < newSize; i++) {
+      oldPositions[i] = NO_POSITION;
+    }
+
+    int start = 0;
+    while (start < oldSize && start < newSize
+        && oldItems.get(start).equals(newItems.get(start))) {
+      keep(start, start, oldPositions, usedOldPositions);
+      start++;
+    }
+    int oldEnd = oldSize;
+    int newEnd = newSize;
+    while (oldEnd > start && newEnd > start
+        && oldItems.get(oldEnd - 1).equals(newItems.get(newEnd - 1))) {
+      oldEnd--;
+      newEnd--;
+      keep(oldEnd, newEnd, oldPositions, usedOldPositions);
+    }
+    matchLongestCommonSubsequence(oldItems, newItems, start, oldEnd, newEnd, oldPositions,
+        usedOldPositions);
+    matchRemovedItems(oldItems, newItems, oldPositions, rebinds, usedOldPositions);
+
+    boolean hasStructuralChanges = oldSize != newSize;
+    for (int i = 0; i < newSize && !hasStructuralChanges; i++) {
+      hasStructuralChanges = oldPositions[i] != i;
+    }
+    return new ExpandableItemsDiff(oldPositions, rebinds, hasStructuralChanges);
+  }
+
+  /**
+   * Returns the position of the old item whose widget has to be used to render the item in the
+   * new position passed as parameter or NO_POSITION if a new widget is needed.
+   */
+  int getOldPosition(int newPosition) {
+    return oldPositions[newPosition];
+  }
+
+  /**
+   * Returns true if the widget used to render the item in the new position passed as parameter
+   * has to be configured again.
+   */
+  boolean needsRebind(int newPosition) {
+    return oldPositions[newPosition] == NO_POSITION || rebinds[newPosition];
+  }
+
+  /**
+   * Returns true if any widget has been inserted, removed or moved.
+   */
+  boolean hasStructuralChanges() {
+    return hasStructuralChanges;
+  }
+
+  private static void keep(int oldPosition, int newPosition, int[] oldPositions,
+      boolean[] usedOldPositions) {
+    oldPositions[newPosition] = oldPosition;
+    usedOldPositions[oldPosition] = true;
+  }
+
+  private static void matchLongestCommonSubsequence(List<ExpandableItem> oldItems,
+      List<ExpandableItem> newItems, int start, int oldEnd, int newEnd, int[] oldPositions,
+      boolean[] usedOldPositions) {
+    int rows = oldEnd - start;
+    int columns = newEnd - start;
+    if (rows == 0 || columns == 0) {
+      return;
+    }
+    int[][] lengths = new int[rows + 1][columns + 1];
+    for (int i = rows - 1; i >= 0; i--) {
+      for (int j = columns - 1; j >= 0; j--) {
+        if (oldItems.get(start + i).equals(newItems.get(start + j))) {
+          lengths[i][j] = lengths[i + 1][j + 1] + 1;
+        } else {
+          lengths[i][j] = Math.max(lengths[i + 1][j], lengths[i][j + 1]);
+        }
+      }
+    }
+    int i = 0;
+    int j = 0;
+    while (i < rows && j < columns) {
+      if (oldItems.get(start + i).equals(newItems.get(start + j))) {
+        keep(start + i, start + j, oldPositions, usedOldPositions);
+        i++;
+        j++;
+      } else if (lengths[i + 1][j] >= lengths[i][j + 1]) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+  }
+
+  private static void matchRemovedItems(List<ExpandableItem> oldItems,
+      List<ExpandableItem> newItems, int[] oldPositions, boolean[] rebinds,
+      boolean[] usedOldPositions) {
+    int oldSize = oldItems.size();
+    int newSize = newItems.size();
+    for (int i = 0; i < newSize; i++) {
+      if (oldPositions[i] != NO_POSITION) {
+        continue;
+      }
+      ExpandableItem newItem = newItems.get(i);
+      for (int j = 0; j < oldSize; j++) {
+        if (!usedOldPositions[j] && oldItems.get(j).equals(newItem)) {
+          keep(j, i, oldPositions, usedOldPositions);
+          break;
+        }
+      }
+    }
+    for (int i = 0; i < newSize; i++) {
+      if (oldPositions[i] != NO_POSITION) {
+        continue;
+      }
+      int viewType = ExpandableItemViewPool.getViewType(newItems.get(i));
+      for (int j = 0; j < oldSize; j++) {
+        if (!usedOldPositions[j]
+            && ExpandableItemViewPool.getViewType(oldItems.get(j)) == viewType) {
+          keep(j, i, oldPositions, usedOldPositions);
+          rebinds[i] = true;
+          break;
+        }
+      }
+    }
+  }
+}
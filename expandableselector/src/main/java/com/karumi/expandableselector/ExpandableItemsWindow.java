@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2015 Karumi.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.karumi.expandableselector;
+
+/**
+ * Keeps the scroll state and the mapping between ExpandableItem positions and Button/ImageButton
+ * positions used when the number of ExpandableItems is bigger than the max number of visible
+ * items configured. The first ExpandableItem is always rendered by the last button and the rest
+ * of the visible ExpandableItems are rendered by a fixed number of buttons reused while the
+ * expanded ExpandableSelector is scrolled. Every row is considered to have the same height.
+ */
+class ExpandableItemsWindow {
+
+  static final int NO_POSITION = -1;
+
+  private final int maxVisibleItems;
+
+  private int numberOfItems;
+  private float scrollOffset;
+  private int firstItemPosition = 1;
+
+  ExpandableItemsWindow(int maxVisibleItems) {
+    this.maxVisibleItems = maxVisibleItems;
+  }
+
+  /**
+   * Returns true if the number of ExpandableItems passed as parameter can't be rendered without
+   * scrolling.
+   */
+  boolean isEnabled(int numberOfItems) {
+    return maxVisibleItems > 0 && numberOfItems > maxVisibleItems;
+  }
+
+  /**
+   * Returns true if the number of ExpandableItems configured can't be rendered without scrolling.
+   */
+  boolean isEnabled() {
+    return isEnabled(numberOfItems);
+  }
+
+  /**
+   * Returns the number of buttons needed to render the number of ExpandableItems passed as
+   * parameter.
+   */
+  int getNumberOfButtons(int numberOfItems) {
+    return isEnabled(numberOfItems) ? maxVisibleItems + 1 : numberOfItems;
+  }
+
+  /**
+   * Configures the number of ExpandableItems to render. The scroll position is kept if it's still
+   * valid for the new number of ExpandableItems.
+   */
+  void setNumberOfItems(int numberOfItems, int rowHeight) {
+    this.numberOfItems = numberOfItems;
+    scrollBy(0, rowHeight);
+  }
+
+  /**
+   * Moves the window to the initial position.
+   */
+  void reset() {
+    scrollOffset = 0;
+    firstItemPosition = 1;
+  }
+
+  /**
+   * Scrolls the window the distance passed as parameter and returns true if the ExpandableItems
+   * rendered by the buttons have changed.
+   */
+  boolean scrollBy(float distance, int rowHeight) {
+    if (rowHeight <= 0) {
+      return false;
+    }
+    float maxScrollOffset = (numberOfItems - maxVisibleItems) * rowHeight;
+    scrollOffset = Math.max(0, Math.min(maxScrollOffset, scrollOffset + distance));
+    int previousFirstItemPosition = firstItemPosition;
+    firstItemPosition = 1 + (int) (scrollOffset / rowHeight);
+    return previousFirstItemPosition != firstItemPosition;
+  }
+
+  /**
+   * Returns the translation in the Y axis the button rendering the ExpandableItem in the position
+   * passed as parameter needs to be shown in the current scroll position.
+   */
+  float getTranslationY(int itemPosition, int rowHeight) {
+    if (itemPosition == 0) {
+      return 0;
+    }
+    return scrollOffset - itemPosition * rowHeight;
+  }
+
+  /**
+   * Returns the position of the ExpandableItem rendered by the button in the position passed as
+   * parameter or NO_POSITION if the button is not used.
+   */
+  int getExpandableItemPosition(int buttonPosition) {
+    if (!isEnabled()) {
+      return numberOfItems - 1 - buttonPosition;
+    }
+    if (buttonPosition == maxVisibleItems) {
+      return 0;
+    }
+    int slot = maxVisibleItems - 1 - buttonPosition;
+    int offset = ((slot - (firstItemPosition - 1)) % maxVisibleItems + maxVisibleItems)
+        % maxVisibleItems;
+    int itemPosition = firstItemPosition + offset;
+    return itemPosition < numberOfItems ? itemPosition : NO_POSITION;
+  }
+
+  /**
+   * Returns the position of the button rendering the ExpandableItem in the position passed as
+   * parameter or NO_POSITION if the ExpandableItem is not rendered in the current scroll position.
+   */
+  int getButtonPosition(int itemPosition) {
+    if (!isEnabled()) {
+      return numberOfItems - 1 - itemPosition;
+    }
+    if (itemPosition == 0) {
+      return maxVisibleItems;
+    }
+    if (itemPosition < firstItemPosition || itemPosition >= firstItemPosition + maxVisibleItems) {
+      return NO_POSITION;
+    }
+    return maxVisibleItems - 1 - (itemPosition - 1) % maxVisibleItems;
+  }
+}
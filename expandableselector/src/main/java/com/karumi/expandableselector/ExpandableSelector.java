@@ -16,21 +16,47 @@
 
 package com.karumi.expandableselector;
 
+import android.animation.TimeInterpolator;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.content.res.XmlResourceParser;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
+import android.os.AsyncTask;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.text.TextPaint;
 import android.util.AttributeSet;
+import android.util.Xml;
+import android.view.Gravity;
+import android.view.InflateException;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
 import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.widget.Button;
 import android.widget.FrameLayout;
 import android.widget.ImageButton;
 import com.karumi.expandableselector.animation.ExpandableSelectorAnimator;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
 
 /**
  * FrameLayout extension used to show a list of ExpandableItems instances represented with Button
@@ -44,19 +70,86 @@ import java.util.List;
  * collapsed/expanded or has
  * been collapsed/expanded.
  * - Configure a OnExpandableItemClickListener to be notified when an item is clicked.
+ * - Find and update items by the stable identifier configured in every ExpandableItem.
+ * - Render the items as child widgets or draw them directly on the ExpandableSelector canvas.
  */
 public class ExpandableSelector extends FrameLayout {
 
   private static final int DEFAULT_ANIMATION_DURATION = 300;
+  private static final int ASYNC_DIFF_THRESHOLD = 32;
+  private static final int RENDERING_MODE_VIEWS = 0;
+  private static final int RENDERING_MODE_CANVAS = 1;
+  private static final int ITEM_MATERIALIZATION_EAGER = 0;
+  private static final int ITEM_MATERIALIZATION_IDLE = 2;
 
   private List<ExpandableItem> expandableItems = Collections.EMPTY_LIST;
   private List<View> buttons = new ArrayList<View>();
+  private ExpandableItemViewPool buttonsPool = new ExpandableItemViewPool();
   private ExpandableSelectorAnimator expandableSelectorAnimator;
+  private ExpandableItemsWindow expandableItemsWindow;
   private ExpandableSelectorListener listener;
+  private ExpandableSelectorGroup group;
   private OnExpandableItemClickListener clickListener;
+  private OnExpandableItemIdClickListener idClickListener;
+  private OnExpandableItemsReadyListener readyListener;
+  private ExpandableSelectorMetricsListener metricsListener;
+  private String metricsTag;
+  private FrameMetricsRecorder frameMetricsRecorder;
+  private AnimationQualityGovernor animationQualityGovernor;
+  private boolean isRecordingExpandMetrics;
+  private int expandableItemsVersion;
+  private int submitGeneration;
+  private int updateDepth;
+  private final BitSet pendingUpdates = new BitSet();
+  private final Map<Long, Integer> itemPositionsById = new HashMap<Long, Integer>();
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
   private boolean hideBackgroundIfCollapsed;
   private Drawable expandedBackground;
+  private Drawable collapsedBackground;
+  private boolean isAnimationRunning;
+  private int touchSlop;
+  private float lastTouchY;
+  private boolean isScrolling;
+  private boolean isInflatingButtons;
+  private boolean expandWhenReady;
+  private boolean animateWhenReady;
+  private LayoutInflater backgroundLayoutInflater;
+  private boolean isCanvasRenderingEnabled;
+  private CanvasButtons canvasButtons;
+  private Button titleTemplate;
+  private int itemMaterialization;
+  private boolean isMaterializationPending;
+  private final List<View> matchParentChildren = new ArrayList<View>();
+  private boolean isRelocationPending;
+
+  private final OnClickListener buttonClickListener = new OnClickListener() {
+    @Override public void onClick(View button) {
+      onButtonClicked((Integer) button.getTag(R.id.expandable_selector_button_position), button);
+    }
+  };
+
+  private final ExpandableSelectorAnimator.Listener expandAnimationListener =
+      new ExpandableSelectorAnimator.Listener() {
+        @Override public void onAnimationFinished() {
+          isAnimationRunning = false;
+          stopRecordingMetrics();
+          invalidateButtons();
+          notifyExpanded();
+        }
+      };
+
+  private final ExpandableSelectorAnimator.Listener collapseAnimationListener =
+      new ExpandableSelectorAnimator.Listener() {
+        @Override public void onAnimationFinished() {
+          isAnimationRunning = false;
+          stopRecordingMetrics();
+          resetExpandableItemsWindow();
+          invalidateButtons();
+          updateBackground();
+          notifyCollapsed();
+        }
+      };
 
   public ExpandableSelector(Context context) {
     this(context, null);
@@ -82,16 +175,194 @@ public class ExpandableSelector extends FrameLayout {
    * Configures a List<ExpandableItem> to be shown. By default, the list of ExpandableItems is
    * going to be shown collapsed. Please take into account that this method creates
    * ImageButton/Button widgets based on the size of the list passed as parameter. Don't use this
-   * library as a RecyclerView and take into account the number of elements to show.
+   * library as a RecyclerView and take into account the number of elements to show. The widgets
+   * created in previous invocations are reused to render the new ExpandableItems of the same kind,
+   * so just the missing widgets are inflated. If the max_visible_items attribute has been
+   * configured and the list is bigger than that value just the widgets needed to fill the expanded
+   * ExpandableSelector are created and they are reused while the expanded widget is scrolled.
+   * If the item_materialization attribute has been configured just the widget used to render the
+   * first ExpandableItem is created here and the rest of them are created before the first expand
+   * or once the UI thread is idle. The objects used by the expand animation are created once the
+   * UI thread is idle or when the first button is touched, before the click is performed. If the
+   * rendering_mode attribute is canvas no widget is created per ExpandableItem, so they are never
+   * materialized later.
    */
   public void showExpandableItems(List<ExpandableItem> expandableItems) {
     validateExpandableItems(expandableItems);
 
+    submitGeneration++;
+    reset();
+    setExpandableItems(expandableItems);
+    expandableItemsWindow.reset();
+    precomputeTitles(this.expandableItems);
+    int numberOfButtons = expandableItemsWindow.getNumberOfButtons(expandableItems.size());
+    if (itemMaterialization != ITEM_MATERIALIZATION_EAGER && numberOfButtons > 1
+        && !isCanvasRenderingEnabled) {
+      renderFirstExpandableItem();
+      isMaterializationPending = true;
+    } else {
+      renderExpandableItems();
+    }
+    hookListeners();
+    prewarmWhenIdle();
+  }
+
+  /**
+   * Configures a List<ExpandableItem> to be shown as showExpandableItems does but inflating and
+   * configuring the missing Button/ImageButton widgets outside the UI thread. Just the first
+   * ExpandableItem is shown until the rest of widgets are ready, then they are attached in one
+   * batch and the OnExpandableItemsReadyListener passed as parameter is notified. Expand
+   * invocations performed before are deferred until the widgets are ready, the state changed with
+   * setExpanded without animation is also applied without animation then. The listener is not
+   * notified if showExpandableItems is invoked again before the widgets are ready. If the
+   * rendering_mode attribute is canvas there are no widgets to inflate, so the ExpandableItems are
+   * shown as showExpandableItems does and the listener is notified immediately.
+   */
+  public void showExpandableItemsAsync(List<ExpandableItem> expandableItems,
+      OnExpandableItemsReadyListener readyListener) {
+    validateExpandableItems(expandableItems);
+
+    int numberOfButtons = expandableItemsWindow.getNumberOfButtons(expandableItems.size());
+    if (numberOfButtons <= 1 || isCanvasRenderingEnabled) {
+      showExpandableItems(expandableItems);
+      notifyExpandableItemsReady(readyListener);
+      return;
+    }
+    final int generation = ++submitGeneration;
     reset();
     setExpandableItems(expandableItems);
-    renderExpandableItems();
+    expandableItemsWindow.reset();
+    renderFirstExpandableItem();
     hookListeners();
-    bringChildsToFront(expandableItems);
+    this.readyListener = readyListener;
+    this.isInflatingButtons = true;
+
+    final int baseVersion = expandableItemsVersion;
+    final List<ExpandableItem> items = new ArrayList<ExpandableItem>(this.expandableItems);
+    final int[] itemPositionsToInflate = getExpandableItemPositionsToInflate(numberOfButtons);
+    final LayoutInflater layoutInflater = getBackgroundLayoutInflater();
+    final Runnable titlesPrecomputation = createTitlesPrecomputation(items);
+    AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+      @Override public void run() {
+        if (titlesPrecomputation != null) {
+          titlesPrecomputation.run();
+        }
+        final View[] inflatedButtons =
+            inflateButtons(layoutInflater, items, itemPositionsToInflate);
+        mainHandler.post(new Runnable() {
+          @Override public void run() {
+            configureInflatedLayoutParams(inflatedButtons);
+            if (generation != submitGeneration) {
+              recycleButtons(inflatedButtons);
+              return;
+            }
+            attachInflatedButtons(inflatedButtons, baseVersion);
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Configures a List<ExpandableItem> to be shown as showExpandableItems does and restores the
+   * collapsed/expanded state passed as parameter without performing any animation or notifying
+   * the ExpandableSelectorListener. Designed to be used from RecyclerView.Adapter.onBindViewHolder
+   * together with unbind and a ExpandableItemViewPool shared between the rows.
+   */
+  public void bind(List<ExpandableItem> expandableItems, boolean expanded) {
+    showExpandableItems(expandableItems);
+    setExpanded(expanded, false);
+  }
+
+  /**
+   * Removes every ExpandableItem shown and returns the Button/ImageButton widgets used to the
+   * ExpandableItemViewPool configured, so other ExpandableSelector widgets sharing the same pool
+   * can reuse them. Designed to be used from RecyclerView.Adapter.onViewRecycled.
+   */
+  public void unbind() {
+    submitGeneration++;
+    reset();
+    buttonsPool.detachFrom(this);
+    requestButtonsLayout();
+  }
+
+  /**
+   * Configures the ExpandableItemViewPool used to store and reuse the Button/ImageButton widgets.
+   * The same instance can be shared between ExpandableSelector widgets created with the same
+   * Context and item style to reuse widgets between them.
+   */
+  public void setExpandableItemViewPool(ExpandableItemViewPool expandableItemViewPool) {
+    if (expandableItemViewPool == null) {
+      throw new IllegalArgumentException(
+          "You can't use a null instance of ExpandableItemViewPool as parameter.");
+    }
+    this.buttonsPool = expandableItemViewPool;
+  }
+
+  /**
+   * Configures a new List<ExpandableItem> to be shown comparing it with the one already shown.
+   * Just the Button/ImageButton widgets associated to the ExpandableItems inserted, removed, moved
+   * or changed are modified and the collapsed/expanded state is kept. When the lists are large
+   * the comparison is performed outside the UI thread and the changes are applied later, so
+   * the new ExpandableItems could not be available just after this method invocation. If the
+   * number of ExpandableItems crosses the max_visible_items value the new list is shown as
+   * showExpandableItems does. A collapse/expand animation running when the changes are applied is
+   * finished without animation.
+   */
+  public void submitExpandableItems(List<ExpandableItem> expandableItems) {
+    validateExpandableItems(expandableItems);
+
+    applyPendingUpdates();
+    if (isInflatingButtons) {
+      showExpandableItemsAsync(expandableItems, readyListener);
+      return;
+    } else if (isMaterializationPending) {
+      showExpandableItems(expandableItems);
+      return;
+    }
+
+    boolean wasWindowEnabled = expandableItemsWindow.isEnabled(this.expandableItems.size());
+    boolean isWindowEnabled = expandableItemsWindow.isEnabled(expandableItems.size());
+    if (wasWindowEnabled != isWindowEnabled) {
+      showExpandableItems(expandableItems);
+      return;
+    } else if (isWindowEnabled) {
+      submitGeneration++;
+      setExpandableItems(expandableItems);
+      precomputeTitles(this.expandableItems);
+      renderExpandableItemsWindow();
+      return;
+    }
+    final int generation = ++submitGeneration;
+    final int baseVersion = expandableItemsVersion;
+    final List<ExpandableItem> oldItems = new ArrayList<ExpandableItem>(this.expandableItems);
+    final List<ExpandableItem> newItems = new ArrayList<ExpandableItem>(expandableItems);
+    if (Math.max(oldItems.size(), newItems.size()) < ASYNC_DIFF_THRESHOLD) {
+      precomputeTitles(newItems);
+      applyExpandableItemsDiff(newItems, ExpandableItemsDiff.calculate(oldItems, newItems));
+      return;
+    }
+    final Runnable titlesPrecomputation = createTitlesPrecomputation(newItems);
+    AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+      @Override public void run() {
+        final ExpandableItemsDiff diff = ExpandableItemsDiff.calculate(oldItems, newItems);
+        if (titlesPrecomputation != null) {
+          titlesPrecomputation.run();
+        }
+        mainHandler.post(new Runnable() {
+          @Override public void run() {
+            if (generation != submitGeneration) {
+              return;
+            }
+            if (baseVersion != expandableItemsVersion) {
+              submitExpandableItems(newItems);
+            } else {
+              applyExpandableItemsDiff(newItems, diff);
+            }
+          }
+        });
+      }
+    });
   }
 
   /**
@@ -100,13 +371,24 @@ public class ExpandableSelector extends FrameLayout {
    * configured.
    */
   public void expand() {
-    expandableSelectorAnimator.expand(new ExpandableSelectorAnimator.Listener() {
-      @Override public void onAnimationFinished() {
-        notifyExpanded();
-      }
-    });
+    if (isInflatingButtons) {
+      expandWhenReady = true;
+      animateWhenReady = true;
+      return;
+    }
+    materializeButtons();
+    if (!applyAnimationQuality()) {
+      changeStateWithoutAnimation(true);
+      notifyExpand();
+      notifyExpanded();
+      return;
+    }
+    isAnimationRunning = true;
+    startRecordingMetrics(true);
+    expandableSelectorAnimator.expand(expandAnimationListener);
     notifyExpand();
     updateBackground();
+    notifyGroupExpand(true);
   }
 
   /**
@@ -115,15 +397,61 @@ public class ExpandableSelector extends FrameLayout {
    * configured.
    */
   public void collapse() {
-    expandableSelectorAnimator.collapse(new ExpandableSelectorAnimator.Listener() {
-      @Override public void onAnimationFinished() {
-        updateBackground();
-        notifyCollapsed();
-      }
-    });
+    if (isInflatingButtons) {
+      expandWhenReady = false;
+      animateWhenReady = true;
+      return;
+    }
+    if (!applyAnimationQuality()) {
+      changeStateWithoutAnimation(false);
+      notifyCollapse();
+      notifyCollapsed();
+      return;
+    }
+    isAnimationRunning = true;
+    startRecordingMetrics(false);
+    expandableSelectorAnimator.collapse(collapseAnimationListener);
     notifyCollapse();
   }
 
+  /**
+   * Expands or collapses the ExpandableSelector. If animate is true this method behaves as expand
+   * and collapse do. If not, any animation running is cancelled and the buttons translation,
+   * visibility and the container size are changed to the final state in the next layout pass,
+   * even if the widget has not been laid out yet, without notifying the ExpandableSelectorListener.
+   */
+  public void setExpanded(boolean expanded, boolean animate) {
+    if (isInflatingButtons) {
+      expandWhenReady = expanded;
+      animateWhenReady = animate;
+      return;
+    }
+    if (expanded) {
+      materializeButtons();
+    }
+    if (animate) {
+      if (expanded && isCollapsed()) {
+        expand();
+      } else if (!expanded && isExpanded()) {
+        collapse();
+      }
+      return;
+    }
+    changeStateWithoutAnimation(expanded);
+  }
+
+  /**
+   * Configures if the collapse/expand animations quality is adapted to the device. If enabled, the
+   * frames dropped by every animation are measured and, if they are dropped repeatedly, the next
+   * animations are shortened, the ExpandableSelector size is not animated and finally the state is
+   * changed without animation. The state is also changed without animation if the system animator
+   * duration scale is 0 and the size is not animated while the power save mode is on. Frames are
+   * measured just from Android 4.1.
+   */
+  public void setAdaptiveAnimationQuality(boolean isAdaptiveAnimationQualityEnabled) {
+    animationQualityGovernor.setEnabled(isAdaptiveAnimationQualityEnabled);
+  }
+
   /**
    * Returns true if the view is collapsed and false if the view is expanded.
    */
@@ -146,16 +474,63 @@ public class ExpandableSelector extends FrameLayout {
     this.listener = listener;
   }
 
+  /**
+   * Configures a ExpandableSelectorMetricsListener instance to be notified with the frame timing
+   * measured during every collapse/expand animation. The tag passed as parameter is included in
+   * every ExpandableSelectorMetrics notified to identify this widget. Frame timing is measured
+   * just from Android 4.1, previous versions don't notify any metric.
+   */
+  public void setExpandableSelectorMetricsListener(
+      ExpandableSelectorMetricsListener metricsListener, String tag) {
+    this.metricsListener = metricsListener;
+    this.metricsTag = tag;
+  }
+
+  /**
+   * Configures the interpolators used to move the buttons while expanding and collapsing and the
+   * one used to resize the ExpandableSelector. Replaces the ones configured using the
+   * expand_interpolator, collapse_interpolator and container_interpolator attributes.
+   */
+  public void setAnimationInterpolators(TimeInterpolator expandInterpolator,
+      TimeInterpolator collapseInterpolator, TimeInterpolator containerInterpolator) {
+    if (expandInterpolator == null || collapseInterpolator == null
+        || containerInterpolator == null) {
+      throw new IllegalArgumentException("You can't use a null instance of TimeInterpolator.");
+    }
+    expandableSelectorAnimator.setInterpolators(expandInterpolator, collapseInterpolator,
+        containerInterpolator);
+  }
+
+  /**
+   * Configures a FrameListener instance to be notified on every frame of the collapse/expand
+   * animations once every button and the ExpandableSelector size have been updated. Every frame is
+   * driven by the same animation, so this is the only callback invoked per frame.
+   */
+  public void setAnimationFrameListener(ExpandableSelectorAnimator.FrameListener frameListener) {
+    expandableSelectorAnimator.setFrameListener(frameListener);
+  }
+
   /**
    * Configures a OnExpandableItemClickListener instance to be notified when a Button/ImageButton
    * inside ExpandableSelector be clicked. If the component is collapsed an the first button is
    * clicked the listener will not be notified. This listener will be notified about button clicks
-   * just when ExpandableSelector be collapsed.
+   * just when ExpandableSelector be collapsed. If the rendering_mode attribute is canvas there is
+   * no widget per item and the View notified is the ExpandableSelector.
    */
   public void setOnExpandableItemClickListener(OnExpandableItemClickListener clickListener) {
     this.clickListener = clickListener;
   }
 
+  /**
+   * Configures a OnExpandableItemIdClickListener instance to be notified with the stable
+   * identifier of the ExpandableItem clicked. Just clicks on ExpandableItems configured with an
+   * identifier are notified and, as OnExpandableItemClickListener, the first button click is not
+   * notified while ExpandableSelector is collapsed.
+   */
+  public void setOnExpandableItemIdClickListener(OnExpandableItemIdClickListener idClickListener) {
+    this.idClickListener = idClickListener;
+  }
+
   /**
    * Given a position passed as parameter returns the ExpandableItem associated.
    */
@@ -163,6 +538,29 @@ public class ExpandableSelector extends FrameLayout {
     return expandableItems.get(expandableItemPosition);
   }
 
+  /**
+   * Returns the ExpandableItem configured with the stable identifier passed as parameter or null if
+   * there is no ExpandableItem with that identifier. The position of every identifier is indexed
+   * when the ExpandableItems change, so this method doesn't traverse the ExpandableItems.
+   */
+  public ExpandableItem findItemById(long id) {
+    Integer expandableItemPosition = itemPositionsById.get(id);
+    return expandableItemPosition == null ? null : expandableItems.get(expandableItemPosition);
+  }
+
+  /**
+   * Changes the ExpandableItem configured with the stable identifier passed as parameter as
+   * updateExpandableItem does. Returns false if there is no ExpandableItem with that identifier.
+   */
+  public boolean updateExpandableItemById(long id, ExpandableItem expandableItem) {
+    Integer expandableItemPosition = itemPositionsById.get(id);
+    if (expandableItemPosition == null) {
+      return false;
+    }
+    updateExpandableItem(expandableItemPosition, expandableItem);
+    return true;
+  }
+
   /**
    * Changes the ExpandableItem associated to a given position and updates the Button widget to
    * show
@@ -170,19 +568,265 @@ public class ExpandableSelector extends FrameLayout {
    */
   public void updateExpandableItem(int expandableItemPosition, ExpandableItem expandableItem) {
     validateExpandableItem(expandableItem);
-    expandableItems.remove(expandableItemPosition);
-    expandableItems.add(expandableItemPosition, expandableItem);
-    int buttonPosition = buttons.size() - 1 - expandableItemPosition;
-    configureButtonContent(buttons.get(buttonPosition), expandableItem);
+    expandableItemsVersion++;
+    ExpandableItem oldExpandableItem = expandableItems.set(expandableItemPosition, expandableItem);
+    unindexItemId(oldExpandableItem, expandableItemPosition);
+    indexItemId(expandableItemPosition);
+    onExpandableItemChanged(expandableItemPosition);
+  }
+
+  /**
+   * Swaps the ExpandableItems associated to the positions passed as parameter and updates the
+   * Button widgets to show the new ExpandableItem information.
+   */
+  public void swapExpandableItems(int firstPosition, int secondPosition) {
+    expandableItemsVersion++;
+    Collections.swap(expandableItems, firstPosition, secondPosition);
+    indexItemId(firstPosition);
+    indexItemId(secondPosition);
+    onExpandableItemChanged(firstPosition);
+    onExpandableItemChanged(secondPosition);
+  }
+
+  /**
+   * Moves the ExpandableItem associated to a given position to a new position shifting the
+   * ExpandableItems in between and updates the Button widgets to show the new ExpandableItem
+   * information.
+   */
+  public void moveExpandableItem(int fromPosition, int toPosition) {
+    expandableItemsVersion++;
+    expandableItems.add(toPosition, expandableItems.remove(fromPosition));
+    int start = Math.min(fromPosition, toPosition);
+    int end = Math.max(fromPosition, toPosition);
+    for (int i = start; i <= end; i++) {
+      indexItemId(i);
+      onExpandableItemChanged(i);
+    }
+  }
+
+  /**
+   * Starts a transaction where the Button widgets are not updated on every updateExpandableItem,
+   * swapExpandableItems or moveExpandableItem invocation. The changes are queued and applied when
+   * the transaction is finished with endUpdate, rebinding every affected Button widget just once
+   * so all of them are laid out in the same layout pass. Transactions can be nested, the changes
+   * are applied when the outermost transaction is finished.
+   */
+  public void beginUpdate() {
+    updateDepth++;
+  }
+
+  /**
+   * Finishes the transaction started with beginUpdate and updates the Button widgets associated
+   * to the ExpandableItems changed during the transaction.
+   */
+  public void endUpdate() {
+    if (updateDepth == 0) {
+      throw new IllegalStateException("endUpdate invoked without a previous beginUpdate.");
+    }
+    updateDepth--;
+    if (updateDepth == 0) {
+      applyPendingUpdates();
+    }
+  }
+
+  ExpandableSelectorGroup getExpandableSelectorGroup() {
+    return group;
+  }
+
+  void setExpandableSelectorGroup(ExpandableSelectorGroup group) {
+    this.group = group;
+  }
+
+  @Override public boolean onInterceptTouchEvent(MotionEvent event) {
+    if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+      prewarmIfFirstButtonTouched(event);
+    }
+    if (!canScrollExpandableItems()) {
+      return super.onInterceptTouchEvent(event);
+    }
+    switch (event.getActionMasked()) {
+      case MotionEvent.ACTION_DOWN:
+        lastTouchY = event.getY();
+        isScrolling = false;
+        break;
+      case MotionEvent.ACTION_MOVE:
+        if (!isScrolling && Math.abs(event.getY() - lastTouchY) > touchSlop) {
+          startScrolling(event);
+        }
+        break;
+      default:
+        isScrolling = false;
+    }
+    return isScrolling;
+  }
+
+  @Override public boolean onTouchEvent(MotionEvent event) {
+    boolean isButtonTouched = isCanvasRenderingEnabled && onButtonsTouchEvent(event);
+    if (!canScrollExpandableItems()) {
+      return isButtonTouched || super.onTouchEvent(event);
+    }
+    switch (event.getActionMasked()) {
+      case MotionEvent.ACTION_DOWN:
+        lastTouchY = event.getY();
+        break;
+      case MotionEvent.ACTION_MOVE:
+        if (!isScrolling && Math.abs(event.getY() - lastTouchY) > touchSlop) {
+          startScrolling(event);
+        } else if (isScrolling) {
+          scrollExpandableItems(event.getY() - lastTouchY);
+          lastTouchY = event.getY();
+        }
+        break;
+      default:
+        isScrolling = false;
+    }
+    return true;
+  }
+
+  /**
+   * Measures the buttons, stacked at the bottom center of this view, and the rest of children as
+   * FrameLayout does. Every child is measured once, except the ones matching the parent size when
+   * this view size is not exact. The measure specs are calculated once for every group of
+   * consecutive buttons with the same size and margins, the usual case because all of them share
+   * the same style, and the expanded positions are updated from the sizes measured. Buttons drawn
+   * on the canvas are not measured one by one, just the template of every view type.
+   */
+  @Override protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+    int paddingWidth = getPaddingLeft() + getPaddingRight();
+    int paddingHeight = getPaddingTop() + getPaddingBottom();
+    int maxWidth = 0;
+    int maxHeight = 0;
+    int childState = 0;
+    MarginLayoutParams lastLayoutParams = null;
+    int buttonWidthMeasureSpec = 0;
+    int buttonHeightMeasureSpec = 0;
+    matchParentChildren.clear();
+    if (isCanvasRenderingEnabled) {
+      canvasButtons.measure(widthMeasureSpec, heightMeasureSpec);
+      maxWidth = canvasButtons.getMeasuredWidth();
+      maxHeight = canvasButtons.getMeasuredHeight();
+    }
+    for (View button : buttons) {
+      MarginLayoutParams layoutParams = (MarginLayoutParams) button.getLayoutParams();
+      if (!haveSameDimensions(layoutParams, lastLayoutParams)) {
+        buttonWidthMeasureSpec = getChildMeasureSpec(widthMeasureSpec,
+            paddingWidth + layoutParams.leftMargin + layoutParams.rightMargin, layoutParams.width);
+        buttonHeightMeasureSpec = getChildMeasureSpec(heightMeasureSpec,
+            paddingHeight + layoutParams.topMargin + layoutParams.bottomMargin,
+            layoutParams.height);
+        lastLayoutParams = layoutParams;
+      }
+      button.measure(buttonWidthMeasureSpec, buttonHeightMeasureSpec);
+      maxWidth = Math.max(maxWidth,
+          button.getMeasuredWidth() + layoutParams.leftMargin + layoutParams.rightMargin);
+      maxHeight = Math.max(maxHeight,
+          button.getMeasuredHeight() + layoutParams.topMargin + layoutParams.bottomMargin);
+      childState = combineMeasuredStates(childState, button.getMeasuredState());
+      addIfMatchesParent(button);
+    }
+    int childCount = getChildCount();
+    for (int i = 0; i < childCount; i++) {
+      View child = getChildAt(i);
+      if (child.getVisibility() == GONE || ExpandableItemViewPool.isExpandableItemView(child)) {
+        continue;
+      }
+      measureChildWithMargins(child, widthMeasureSpec, 0, heightMeasureSpec, 0);
+      MarginLayoutParams layoutParams = (MarginLayoutParams) child.getLayoutParams();
+      maxWidth = Math.max(maxWidth,
+          child.getMeasuredWidth() + layoutParams.leftMargin + layoutParams.rightMargin);
+      maxHeight = Math.max(maxHeight,
+          child.getMeasuredHeight() + layoutParams.topMargin + layoutParams.bottomMargin);
+      childState = combineMeasuredStates(childState, child.getMeasuredState());
+      addIfMatchesParent(child);
+    }
+    maxWidth = Math.max(maxWidth + paddingWidth, getSuggestedMinimumWidth());
+    maxHeight = Math.max(maxHeight + paddingHeight, getSuggestedMinimumHeight());
+    setMeasuredDimension(resolveSizeAndState(maxWidth, widthMeasureSpec, childState),
+        resolveSizeAndState(maxHeight, heightMeasureSpec,
+            childState << MEASURED_HEIGHT_STATE_SHIFT));
+    if (MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.EXACTLY
+        || MeasureSpec.getMode(heightMeasureSpec) != MeasureSpec.EXACTLY) {
+      measureMatchParentChildren(widthMeasureSpec, heightMeasureSpec);
+    }
+    matchParentChildren.clear();
+    expandableSelectorAnimator.updateExpandedOffsets();
+  }
+
+  /**
+   * Places the buttons at the bottom center of this view and the rest of children using the
+   * gravity configured in their layout params as FrameLayout does.
+   */
+  @Override protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+    layoutButtons(right - left, bottom - top);
+    layoutChildren(right - left, bottom - top);
+    if (isRelocationPending) {
+      isRelocationPending = false;
+      expandableSelectorAnimator.relocateButtons();
+    }
+  }
+
+  /**
+   * Resizes the container to the state changed without animation before it had layout params, so
+   * the size is applied before the first measure pass.
+   */
+  @Override protected void onAttachedToWindow() {
+    super.onAttachedToWindow();
+    if (isRelocationPending) {
+      expandableSelectorAnimator.resizeContainerWithoutAnimation();
+    }
+  }
+
+  @Override protected Parcelable onSaveInstanceState() {
+    SavedState savedState = new SavedState(super.onSaveInstanceState());
+    savedState.isExpanded = isExpanded();
+    return savedState;
+  }
+
+  @Override protected void onRestoreInstanceState(Parcelable state) {
+    if (!(state instanceof SavedState)) {
+      super.onRestoreInstanceState(state);
+      return;
+    }
+    SavedState savedState = (SavedState) state;
+    super.onRestoreInstanceState(savedState.getSuperState());
+    if (savedState.isExpanded != isExpanded()) {
+      setExpanded(savedState.isExpanded, false);
+    }
+  }
+
+  @Override protected void dispatchDraw(Canvas canvas) {
+    if (isCanvasRenderingEnabled) {
+      drawButtons(canvas);
+    }
+    super.dispatchDraw(canvas);
   }
 
   private void initializeView(AttributeSet attrs) {
     TypedArray attributes =
         getContext().obtainStyledAttributes(attrs, R.styleable.expandable_selector);
+    initializeRenderingMode(attributes);
+    initializeItemMaterialization(attributes);
     initializeAnimationDuration(attributes);
     initializeHideBackgroundIfCollapsed(attributes);
     initializeHideFirstItemOnCollapse(attributes);
+    initializeMaxVisibleItems(attributes);
+    initializeAdaptiveAnimationQuality(attributes);
     attributes.recycle();
+    touchSlop = ViewConfiguration.get(getContext()).getScaledTouchSlop();
+  }
+
+  private void initializeRenderingMode(TypedArray attributes) {
+    int renderingMode =
+        attributes.getInt(R.styleable.expandable_selector_rendering_mode, RENDERING_MODE_VIEWS);
+    isCanvasRenderingEnabled = renderingMode == RENDERING_MODE_CANVAS;
+    if (isCanvasRenderingEnabled) {
+      canvasButtons = new CanvasButtons(this);
+    }
+  }
+
+  private void initializeItemMaterialization(TypedArray attributes) {
+    itemMaterialization = attributes.getInt(R.styleable.expandable_selector_item_materialization,
+        ITEM_MATERIALIZATION_EAGER);
   }
 
   private void initializeHideBackgroundIfCollapsed(TypedArray attributes) {
@@ -207,6 +851,16 @@ public class ExpandableSelector extends FrameLayout {
                     android.R.anim.decelerate_interpolator);
     expandableSelectorAnimator = new ExpandableSelectorAnimator(this, animationDuration, expandInterpolatorId,
             collapseInterpolatorId, containerInterpolatorId);
+    int containerAnimation =
+        attributes.getInt(R.styleable.expandable_selector_container_animation,
+            ExpandableSelectorAnimator.CONTAINER_ANIMATION_RESIZE);
+    expandableSelectorAnimator.setContainerAnimation(containerAnimation);
+    int hardwareLayersMode =
+        attributes.getInt(R.styleable.expandable_selector_hardware_layers,
+            ExpandableSelectorAnimator.HARDWARE_LAYERS_BUTTONS);
+    expandableSelectorAnimator.setHardwareLayersMode(hardwareLayersMode);
+    int staggerDelay = attributes.getInteger(R.styleable.expandable_selector_stagger_delay, 0);
+    expandableSelectorAnimator.setStaggerDelay(staggerDelay);
   }
 
   private void initializeHideFirstItemOnCollapse(TypedArray attributes) {
@@ -215,6 +869,91 @@ public class ExpandableSelector extends FrameLayout {
     expandableSelectorAnimator.setHideFirstItemOnCollapse(hideFirstItemOnCollapsed);
   }
 
+  private void initializeMaxVisibleItems(TypedArray attributes) {
+    int maxVisibleItems =
+        attributes.getInteger(R.styleable.expandable_selector_max_visible_items, 0);
+    expandableItemsWindow = new ExpandableItemsWindow(maxVisibleItems);
+    expandableSelectorAnimator.setMaxVisibleItems(maxVisibleItems);
+  }
+
+  private void initializeAdaptiveAnimationQuality(TypedArray attributes) {
+    animationQualityGovernor = new AnimationQualityGovernor(getContext());
+    boolean isAdaptiveAnimationQualityEnabled = attributes.getBoolean(
+        R.styleable.expandable_selector_adaptive_animation_quality, false);
+    animationQualityGovernor.setEnabled(isAdaptiveAnimationQualityEnabled);
+  }
+
+  /**
+   * Configures the ExpandableSelectorAnimator with the quality the next animation has to be
+   * performed with. Returns false if the state has to be changed without animation.
+   */
+  private boolean applyAnimationQuality() {
+    int quality = animationQualityGovernor.getQuality();
+    if (quality == AnimationQualityGovernor.QUALITY_INSTANT) {
+      return false;
+    }
+    expandableSelectorAnimator.setDurationFactor(
+        animationQualityGovernor.getDurationFactor(quality));
+    expandableSelectorAnimator.setContainerAnimationEnabled(
+        quality < AnimationQualityGovernor.QUALITY_NO_CONTAINER_ANIMATION);
+    return true;
+  }
+
+  /**
+   * Cancels any animation running and changes the buttons translation, visibility and the
+   * container size to the state passed as parameter in the next layout pass. The
+   * ExpandableSelectorGroup is notified when expanding, as expand does, so its policy is applied
+   * to widgets bound or restored expanded too.
+   */
+  private void changeStateWithoutAnimation(boolean expanded) {
+    settleState(expanded);
+    if (expanded) {
+      notifyGroupExpand(false);
+    }
+  }
+
+  /**
+   * Cancels any animation running and moves the buttons and resizes the container to the state
+   * passed as parameter in the next layout pass without notifying any listener.
+   */
+  private void settleState(boolean expanded) {
+    isAnimationRunning = false;
+    stopRecordingMetrics();
+    expandableSelectorAnimator.setCollapsedWithoutAnimation(!expanded);
+    if (!expanded) {
+      resetExpandableItemsWindow();
+    }
+    updateBackground();
+    expandableSelectorAnimator.resizeContainerWithoutAnimation();
+    isRelocationPending = true;
+    requestLayout();
+    invalidateButtons();
+  }
+
+  /**
+   * Finishes the collapse/expand animation running, if any, moving the buttons to its final state
+   * without animation, so the buttons changed afterwards are not driven by that animation. The
+   * ExpandableSelectorListener is notified as if the animation had finished.
+   */
+  private void finishRunningAnimation() {
+    if (!isAnimationRunning) {
+      return;
+    }
+    boolean expanded = isExpanded();
+    settleState(expanded);
+    if (expanded) {
+      notifyExpanded();
+    } else {
+      notifyCollapsed();
+    }
+  }
+
+  private void notifyGroupExpand(boolean animate) {
+    if (group != null) {
+      group.onExpand(this, animate);
+    }
+  }
+
   private void updateBackground() {
     if (!hideBackgroundIfCollapsed) {
       return;
@@ -222,97 +961,993 @@ public class ExpandableSelector extends FrameLayout {
     if (isExpanded()) {
       setBackgroundDrawable(expandedBackground);
     } else {
-      setBackgroundResource(android.R.color.transparent);
+      if (collapsedBackground == null) {
+        collapsedBackground = new ColorDrawable(Color.TRANSPARENT);
+      }
+      setBackgroundDrawable(collapsedBackground);
     }
   }
 
   private void reset() {
     this.expandableItems = Collections.EMPTY_LIST;
+    itemPositionsById.clear();
     for (View button : buttons) {
-      removeView(button);
+      buttonsPool.put(button);
     }
     this.buttons = new ArrayList<View>();
     expandableSelectorAnimator.reset();
+    if (isCanvasRenderingEnabled) {
+      canvasButtons.reset(0);
+    }
+    isAnimationRunning = false;
+    releasePressedButton();
+    isInflatingButtons = false;
+    isMaterializationPending = false;
+    expandWhenReady = false;
+    animateWhenReady = false;
+    readyListener = null;
+    pendingUpdates.clear();
+    stopRecordingMetrics();
   }
 
   private void renderExpandableItems() {
-    int numberOfItems = expandableItems.size();
-    for (int i = numberOfItems - 1; i >= 0; i--) {
-      View button = initializeButton(i);
-      addView(button);
+    int numberOfButtons = expandableItemsWindow.getNumberOfButtons(expandableItems.size());
+    if (isCanvasRenderingEnabled) {
+      renderCanvasExpandableItems(numberOfButtons);
+      return;
+    }
+    for (int i = 0; i < numberOfButtons; i++) {
+      int expandableItemPosition = expandableItemsWindow.getExpandableItemPosition(i);
+      View button = obtainButton(expandableItemPosition);
       buttons.add(button);
-      expandableSelectorAnimator.initializeButton(button);
-      configureButtonContent(button, expandableItems.get((i)));
+      configureButtonContent(button, expandableItems.get(expandableItemPosition));
     }
+    buttonsPool.detachFrom(this);
+    attachButtons();
     expandableSelectorAnimator.setButtons(buttons);
   }
 
-  private void hookListeners() {
-    final int numberOfButtons = buttons.size();
-    boolean thereIsMoreThanOneButton = numberOfButtons > 1;
-    if (thereIsMoreThanOneButton) {
-      buttons.get(numberOfButtons - 1).setOnClickListener(new OnClickListener() {
-        @Override public void onClick(View v) {
-          if (isCollapsed()) {
-            expand();
-          } else {
-            notifyButtonClicked(0, v);
-          }
-        }
-      });
-    }
-    for (int i = 0; i < numberOfButtons - 1; i++) {
-      final int buttonPosition = i;
-      buttons.get(i).setOnClickListener(new OnClickListener() {
-        @Override public void onClick(View v) {
-          int buttonIndex = numberOfButtons - 1 - buttonPosition;
-          notifyButtonClicked(buttonIndex, v);
-        }
-      });
+  /**
+   * Configures the buttons drawn on the canvas to render the ExpandableItems. Just the first one is
+   * visible until the ExpandableSelector is expanded.
+   */
+  private void renderCanvasExpandableItems(int numberOfButtons) {
+    canvasButtons.reset(numberOfButtons);
+    for (int i = 0; i < numberOfButtons; i++) {
+      int expandableItemPosition = expandableItemsWindow.getExpandableItemPosition(i);
+      canvasButtons.bind(i, expandableItems.get(expandableItemPosition));
+      int visibility = expandableItemPosition == 0 ? View.VISIBLE : View.INVISIBLE;
+      canvasButtons.setVisibility(i, visibility);
     }
+    expandableSelectorAnimator.setButtons(canvasButtons);
+    requestButtonsLayout();
   }
 
-  private void notifyButtonClicked(int itemPosition, View button) {
-    if (clickListener != null) {
-      clickListener.onExpandableItemClickListener(itemPosition, button);
+  private void onExpandableItemChanged(int expandableItemPosition) {
+    if (updateDepth > 0) {
+      pendingUpdates.set(expandableItemPosition);
+    } else {
+      renderExpandableItem(expandableItemPosition);
     }
   }
 
-  private View initializeButton(int expandableItemPosition) {
-    ExpandableItem expandableItem = expandableItems.get(expandableItemPosition);
-    View button = null;
-    Context context = getContext();
-    LayoutInflater layoutInflater = LayoutInflater.from(context);
-    if (expandableItem.hasTitle()) {
-      button = layoutInflater.inflate(R.layout.expandable_item_button, this, false);
-    } else {
-      button = layoutInflater.inflate(R.layout.expandable_item_image_button, this, false);
+  private void applyPendingUpdates() {
+    int expandableItemPosition = pendingUpdates.nextSetBit(0);
+    while (expandableItemPosition >= 0) {
+      if (expandableItemPosition < expandableItems.size()) {
+        renderExpandableItem(expandableItemPosition);
+      }
+      expandableItemPosition = pendingUpdates.nextSetBit(expandableItemPosition + 1);
     }
-    int visibility = expandableItemPosition == 0 ? View.VISIBLE : View.INVISIBLE;
-    button.setVisibility(visibility);
-    return button;
+    pendingUpdates.clear();
   }
 
-  private void configureButtonContent(View button, ExpandableItem expandableItem) {
-    if (expandableItem.hasBackgroundId()) {
-      int backgroundId = expandableItem.getBackgroundId();
-      button.setBackgroundResource(backgroundId);
-    }
-    if (expandableItem.hasTitle()) {
-      String text = expandableItem.getTitle();
-      ((Button) button).setText(text);
+  private void renderExpandableItem(int expandableItemPosition) {
+    if (isInflatingButtons || isMaterializationPending) {
+      if (expandableItemPosition == 0) {
+        bindButton(0, 0);
+      }
+      return;
     }
-    if (expandableItem.hasResourceId()) {
-      ImageButton imageButton = (ImageButton) button;
-      int resourceId = expandableItem.getResourceId();
-      imageButton.setImageResource(resourceId);
+    int buttonPosition = expandableItemsWindow.getButtonPosition(expandableItemPosition);
+    if (buttonPosition != ExpandableItemsWindow.NO_POSITION) {
+      bindButton(buttonPosition, expandableItemPosition);
     }
   }
 
-  private void notifyExpand() {
-    if (hasListenerConfigured()) {
-      listener.onExpand();
-    }
+  private void renderFirstExpandableItem() {
+    View button = obtainButton(0);
+    configureButtonContent(button, expandableItems.get(0));
+    buttons.add(button);
+    buttonsPool.detachFrom(this);
+    attachButtons();
+    expandableSelectorAnimator.setButtons(buttons);
+  }
+
+  private int[] getExpandableItemPositionsToInflate(int numberOfButtons) {
+    int availableTitleButtons = buttonsPool.size(ExpandableItemViewPool.TITLE_VIEW_TYPE);
+    int availableIconButtons = buttonsPool.size(ExpandableItemViewPool.ICON_VIEW_TYPE);
+    int[] itemPositions = new int[numberOfButtons - 1];
+    for (int i = 0; i < numberOfButtons - 1; i++) {
+      int expandableItemPosition = expandableItemsWindow.getExpandableItemPosition(i);
+      ExpandableItem expandableItem = expandableItems.get(expandableItemPosition);
+      boolean isAvailable;
+      if (ExpandableItemViewPool.getViewType(expandableItem)
+          == ExpandableItemViewPool.TITLE_VIEW_TYPE) {
+        isAvailable = availableTitleButtons-- > 0;
+      } else {
+        isAvailable = availableIconButtons-- > 0;
+      }
+      itemPositions[i] = isAvailable ? ExpandableItemsWindow.NO_POSITION : expandableItemPosition;
+    }
+    return itemPositions;
+  }
+
+  /**
+   * Inflates and configures the widgets needed to render the ExpandableItems in the positions
+   * passed as parameter. This method is invoked outside the UI thread, so it just touches the
+   * widgets created here and never the ones attached to this view. The widgets are inflated
+   * without a parent, their layout params are generated once they are back in the UI thread.
+   */
+  private View[] inflateButtons(LayoutInflater layoutInflater,
+      List<ExpandableItem> expandableItems, int[] itemPositions) {
+    View[] inflatedButtons = new View[itemPositions.length];
+    for (int i = 0; i < itemPositions.length; i++) {
+      int expandableItemPosition = itemPositions[i];
+      if (expandableItemPosition == ExpandableItemsWindow.NO_POSITION) {
+        continue;
+      }
+      ExpandableItem expandableItem = expandableItems.get(expandableItemPosition);
+      int viewType = ExpandableItemViewPool.getViewType(expandableItem);
+      View button = initializeButton(layoutInflater, null, viewType);
+      configureButtonContent(button, expandableItem);
+      button.setVisibility(View.INVISIBLE);
+      inflatedButtons[i] = button;
+    }
+    return inflatedButtons;
+  }
+
+  private LayoutInflater getBackgroundLayoutInflater() {
+    if (backgroundLayoutInflater == null) {
+      backgroundLayoutInflater = new BasicLayoutInflater(getContext());
+    }
+    return backgroundLayoutInflater;
+  }
+
+  /**
+   * Configures the layout params of the widgets inflated outside the UI thread. The layout params
+   * are generated from the layout resource of every view type just once and copied.
+   */
+  private void configureInflatedLayoutParams(View[] inflatedButtons) {
+    LayoutParams buttonLayoutParams = null;
+    LayoutParams imageButtonLayoutParams = null;
+    for (View button : inflatedButtons) {
+      if (button == null) {
+        continue;
+      }
+      LayoutParams source;
+      if (ExpandableItemViewPool.getViewType(button) == ExpandableItemViewPool.TITLE_VIEW_TYPE) {
+        if (buttonLayoutParams == null) {
+          buttonLayoutParams = inflateLayoutParams(R.layout.expandable_item_button);
+        }
+        source = buttonLayoutParams;
+      } else {
+        if (imageButtonLayoutParams == null) {
+          imageButtonLayoutParams = inflateLayoutParams(R.layout.expandable_item_image_button);
+        }
+        source = imageButtonLayoutParams;
+      }
+      LayoutParams layoutParams = new LayoutParams((MarginLayoutParams) source);
+      layoutParams.gravity = source.gravity;
+      button.setLayoutParams(layoutParams);
+    }
+  }
+
+  private LayoutParams inflateLayoutParams(int layoutId) {
+    XmlResourceParser parser = getResources().getLayout(layoutId);
+    try {
+      int type;
+      do {
+        type = parser.next();
+      } while (type != XmlPullParser.START_TAG && type != XmlPullParser.END_DOCUMENT);
+      return generateLayoutParams(Xml.asAttributeSet(parser));
+    } catch (XmlPullParserException e) {
+      throw new InflateException(e.getMessage(), e);
+    } catch (IOException e) {
+      throw new InflateException(e.getMessage(), e);
+    } finally {
+      parser.close();
+    }
+  }
+
+  private void recycleButtons(View[] inflatedButtons) {
+    for (View button : inflatedButtons) {
+      if (button != null) {
+        buttonsPool.put(button);
+      }
+    }
+  }
+
+  private void attachInflatedButtons(View[] inflatedButtons, int baseVersion) {
+    attachRemainingButtons(inflatedButtons, baseVersion != expandableItemsVersion);
+
+    OnExpandableItemsReadyListener readyListener = this.readyListener;
+    boolean expandWhenReady = this.expandWhenReady;
+    boolean animateWhenReady = this.animateWhenReady;
+    this.isInflatingButtons = false;
+    this.expandWhenReady = false;
+    this.animateWhenReady = false;
+    this.readyListener = null;
+    notifyExpandableItemsReady(readyListener);
+    if (!expandWhenReady) {
+      prewarmWhenIdle();
+    } else if (animateWhenReady) {
+      expand();
+    } else {
+      changeStateWithoutAnimation(true);
+    }
+  }
+
+  /**
+   * Creates the widgets needed to render every ExpandableItem but the first one, already rendered,
+   * and attaches them in one batch. Just the widgets not created outside the UI thread, the null
+   * positions of the array passed as parameter, are obtained from the pool here.
+   */
+  private void attachRemainingButtons(View[] inflatedButtons, boolean haveExpandableItemsChanged) {
+    View firstButton = buttons.get(0);
+    List<View> buttons = new ArrayList<View>(inflatedButtons.length + 1);
+    for (int i = 0; i < inflatedButtons.length; i++) {
+      int expandableItemPosition = expandableItemsWindow.getExpandableItemPosition(i);
+      ExpandableItem expandableItem = expandableItems.get(expandableItemPosition);
+      View button = inflatedButtons[i];
+      if (button != null && ExpandableItemViewPool.getViewType(button)
+          != ExpandableItemViewPool.getViewType(expandableItem)) {
+        buttonsPool.put(button);
+        button = null;
+      }
+      if (button == null) {
+        button = obtainButton(expandableItemPosition);
+        configureButtonContent(button, expandableItem);
+      } else if (haveExpandableItemsChanged) {
+        configureButtonContent(button, expandableItem);
+      }
+      buttons.add(button);
+    }
+    buttons.add(firstButton);
+    this.buttons = buttons;
+    buttonsPool.detachFrom(this);
+    attachButtons();
+    expandableSelectorAnimator.setButtons(buttons);
+    hookListeners();
+  }
+
+  /**
+   * Creates and attaches the widgets used to render every ExpandableItem but the first one if
+   * they were not created when the ExpandableItems were configured.
+   */
+  private void materializeButtons() {
+    if (!isMaterializationPending) {
+      return;
+    }
+    isMaterializationPending = false;
+    int numberOfButtons = expandableItemsWindow.getNumberOfButtons(expandableItems.size());
+    attachRemainingButtons(new View[numberOfButtons - 1], false);
+  }
+
+  /**
+   * Prepares the widgets, drawables and animation objects used by the next expand once the UI
+   * thread is idle. Nothing is done if the ExpandableItems are configured again before.
+   */
+  private void prewarmWhenIdle() {
+    final int generation = submitGeneration;
+    Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+      @Override public boolean queueIdle() {
+        if (generation == submitGeneration) {
+          prewarm(itemMaterialization == ITEM_MATERIALIZATION_IDLE);
+        }
+        return false;
+      }
+    });
+  }
+
+  /**
+   * Prepares the next expand when the first button is touched while collapsed, usually just
+   * before the click expanding the widget is performed.
+   */
+  private void prewarmIfFirstButtonTouched(MotionEvent event) {
+    int numberOfButtons = getNumberOfButtons();
+    if (numberOfButtons == 0 || !isCollapsed()) {
+      return;
+    }
+    if (findButtonUnder(event.getX(), event.getY()) == numberOfButtons - 1) {
+      prewarm(true);
+    }
+  }
+
+  /**
+   * Performs the work the next expand would do before it's invoked. If the widgets pending to be
+   * materialized are not created here just the drawables they will use are loaded, so they are
+   * obtained from the DrawableCache once the widgets are created.
+   */
+  private void prewarm(boolean materializeButtons) {
+    if (materializeButtons) {
+      materializeButtons();
+    } else {
+      prewarmDrawables();
+    }
+    expandableSelectorAnimator.prewarm();
+  }
+
+  private void prewarmDrawables() {
+    if (!isMaterializationPending) {
+      return;
+    }
+    int numberOfButtons = expandableItemsWindow.getNumberOfButtons(expandableItems.size());
+    for (int i = 0; i < numberOfButtons - 1; i++) {
+      int expandableItemPosition = expandableItemsWindow.getExpandableItemPosition(i);
+      ExpandableItem expandableItem = expandableItems.get(expandableItemPosition);
+      if (expandableItem.hasBackgroundId()) {
+        getDrawable(expandableItem.getBackgroundId());
+      }
+      if (expandableItem.hasResourceId()) {
+        getDrawable(expandableItem.getResourceId());
+      }
+    }
+  }
+
+  private void notifyExpandableItemsReady(OnExpandableItemsReadyListener readyListener) {
+    if (readyListener != null) {
+      readyListener.onExpandableItemsReady();
+    }
+  }
+
+  private void applyExpandableItemsDiff(List<ExpandableItem> newItems,
+      ExpandableItemsDiff diff) {
+    finishRunningAnimation();
+    if (isCanvasRenderingEnabled) {
+      applyCanvasExpandableItemsDiff(newItems, diff);
+      return;
+    }
+    List<View> oldButtons = buttons;
+    int numberOfOldButtons = oldButtons.size();
+    int numberOfItems = newItems.size();
+    boolean[] reusedButtons = new boolean[numberOfOldButtons];
+    int headerVisibility = numberOfOldButtons > 0
+        ? oldButtons.get(numberOfOldButtons - 1).getVisibility() : View.VISIBLE;
+    setExpandableItems(newItems);
+    this.buttons = new ArrayList<View>(numberOfItems);
+    for (int i = numberOfItems - 1; i >= 0; i--) {
+      int oldPosition = diff.getOldPosition(i);
+      View button;
+      if (oldPosition == ExpandableItemsDiff.NO_POSITION) {
+        button = obtainButton(i);
+      } else {
+        int oldButtonPosition = numberOfOldButtons - 1 - oldPosition;
+        button = oldButtons.get(oldButtonPosition);
+        reusedButtons[oldButtonPosition] = true;
+      }
+      if (diff.needsRebind(i)) {
+        configureButtonContent(button, newItems.get(i));
+      }
+      if (isExpanded()) {
+        button.setVisibility(View.VISIBLE);
+      } else {
+        button.setVisibility(i == 0 ? headerVisibility : View.INVISIBLE);
+        button.setTranslationY(0);
+      }
+      buttons.add(button);
+    }
+    for (int i = 0; i < numberOfOldButtons; i++) {
+      if (!reusedButtons[i]) {
+        buttonsPool.put(oldButtons.get(i));
+      }
+    }
+    expandableSelectorAnimator.setButtons(buttons);
+    if (!diff.hasStructuralChanges()) {
+      requestButtonsLayout();
+      return;
+    }
+    buttonsPool.detachFrom(this);
+    attachButtons();
+    hookListeners();
+    if (isExpanded()) {
+      relocateButtonsOnPreDraw();
+    }
+  }
+
+  /**
+   * Applies the changes calculated as applyExpandableItemsDiff does to the buttons drawn on the
+   * canvas. The buttons of the ExpandableItems kept are moved to their new positions and just the
+   * ones inserted or changed are bound again.
+   */
+  private void applyCanvasExpandableItemsDiff(List<ExpandableItem> newItems,
+      ExpandableItemsDiff diff) {
+    int numberOfOldButtons = canvasButtons.size();
+    int numberOfItems = newItems.size();
+    int headerVisibility = numberOfOldButtons > 0
+        ? canvasButtons.getVisibility(numberOfOldButtons - 1) : View.VISIBLE;
+    int[] oldButtonPositions = new int[numberOfItems];
+    for (int i = 0; i < numberOfItems; i++) {
+      int oldPosition = diff.getOldPosition(i);
+      oldButtonPositions[numberOfItems - 1 - i] = oldPosition == ExpandableItemsDiff.NO_POSITION
+          ? CanvasButtons.NO_POSITION : numberOfOldButtons - 1 - oldPosition;
+    }
+    setExpandableItems(newItems);
+    canvasButtons.rearrange(oldButtonPositions);
+    boolean hasViewTypeChanged = false;
+    for (int i = 0; i < numberOfItems; i++) {
+      int buttonPosition = numberOfItems - 1 - i;
+      hasViewTypeChanged |= canvasButtons.bind(buttonPosition, newItems.get(i));
+      if (isExpanded()) {
+        canvasButtons.setVisibility(buttonPosition, View.VISIBLE);
+      } else {
+        canvasButtons.setVisibility(buttonPosition, i == 0 ? headerVisibility : View.INVISIBLE);
+        canvasButtons.setTranslationY(buttonPosition, 0);
+      }
+    }
+    expandableSelectorAnimator.setButtons(canvasButtons);
+    if (hasViewTypeChanged || diff.hasStructuralChanges()) {
+      requestButtonsLayout();
+    }
+    if (diff.hasStructuralChanges() && isExpanded()) {
+      relocateButtonsOnPreDraw();
+    }
+  }
+
+  /**
+   * Moves the buttons to the position associated to the current state once they have been laid
+   * out. If the container has to be resized the current frame is not drawn to avoid showing the
+   * buttons out of the previous bounds.
+   */
+  private void relocateButtonsOnPreDraw() {
+    getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+      @Override public boolean onPreDraw() {
+        getViewTreeObserver().removeOnPreDrawListener(this);
+        return !expandableSelectorAnimator.relocateButtons();
+      }
+    });
+  }
+
+  private void attachButtons() {
+    boolean isDrawingOrderBroken = false;
+    int lastChildIndex = -1;
+    for (View button : buttons) {
+      if (button.getParent() == null) {
+        addView(button);
+      }
+      int childIndex = indexOfChild(button);
+      isDrawingOrderBroken |= childIndex < lastChildIndex;
+      lastChildIndex = childIndex;
+    }
+    if (isDrawingOrderBroken) {
+      for (View button : buttons) {
+        button.bringToFront();
+      }
+    }
+    bringChildsToFront();
+  }
+
+  private boolean canScrollExpandableItems() {
+    return expandableItemsWindow.isEnabled() && isExpanded() && !isAnimationRunning;
+  }
+
+  private void startScrolling(MotionEvent event) {
+    isScrolling = true;
+    releasePressedButton();
+    lastTouchY = event.getY();
+    if (getParent() != null) {
+      getParent().requestDisallowInterceptTouchEvent(true);
+    }
+  }
+
+  private void scrollExpandableItems(float distance) {
+    int rowHeight = expandableSelectorAnimator.getRowHeight();
+    if (expandableItemsWindow.scrollBy(distance, rowHeight)) {
+      bindExpandableItemsWindow();
+    }
+    translateExpandableItemsWindow(rowHeight);
+  }
+
+  private void renderExpandableItemsWindow() {
+    int rowHeight = expandableSelectorAnimator.getRowHeight();
+    expandableItemsWindow.setNumberOfItems(expandableItems.size(), rowHeight);
+    bindExpandableItemsWindow();
+    if (isExpanded() && !isAnimationRunning) {
+      translateExpandableItemsWindow(rowHeight);
+    }
+  }
+
+  private void resetExpandableItemsWindow() {
+    if (!expandableItemsWindow.isEnabled()) {
+      return;
+    }
+    expandableItemsWindow.reset();
+    bindExpandableItemsWindow();
+  }
+
+  private void bindExpandableItemsWindow() {
+    int numberOfButtons = getNumberOfButtons();
+    for (int i = 0; i < numberOfButtons; i++) {
+      int expandableItemPosition = expandableItemsWindow.getExpandableItemPosition(i);
+      if (expandableItemPosition != ExpandableItemsWindow.NO_POSITION) {
+        bindButton(i, expandableItemPosition);
+      }
+    }
+  }
+
+  private void translateExpandableItemsWindow(int rowHeight) {
+    int numberOfButtons = getNumberOfButtons();
+    for (int i = 0; i < numberOfButtons; i++) {
+      int expandableItemPosition = expandableItemsWindow.getExpandableItemPosition(i);
+      if (expandableItemPosition == ExpandableItemsWindow.NO_POSITION) {
+        setButtonVisibility(i, View.INVISIBLE);
+      } else {
+        setButtonVisibility(i, View.VISIBLE);
+        setButtonTranslationY(i,
+            expandableItemsWindow.getTranslationY(expandableItemPosition, rowHeight));
+      }
+    }
+  }
+
+  private void setButtonVisibility(int buttonPosition, int visibility) {
+    if (isCanvasRenderingEnabled) {
+      canvasButtons.setVisibility(buttonPosition, visibility);
+    } else {
+      buttons.get(buttonPosition).setVisibility(visibility);
+    }
+  }
+
+  private void setButtonTranslationY(int buttonPosition, float translationY) {
+    if (isCanvasRenderingEnabled) {
+      canvasButtons.setTranslationY(buttonPosition, translationY);
+    } else {
+      buttons.get(buttonPosition).setTranslationY(translationY);
+    }
+  }
+
+  private void bindButton(int buttonPosition, int expandableItemPosition) {
+    ExpandableItem expandableItem = expandableItems.get(expandableItemPosition);
+    if (isCanvasRenderingEnabled) {
+      if (canvasButtons.bind(buttonPosition, expandableItem)) {
+        requestButtonsLayout();
+      }
+      return;
+    }
+    View button = buttons.get(buttonPosition);
+    int viewType = ExpandableItemViewPool.getViewType(expandableItem);
+    if (ExpandableItemViewPool.getViewType(button) != viewType) {
+      button = replaceButton(buttonPosition, viewType);
+    }
+    configureButtonContent(button, expandableItem);
+  }
+
+  private View replaceButton(int buttonPosition, int viewType) {
+    View oldButton = buttons.get(buttonPosition);
+    View button = buttonsPool.get(viewType);
+    if (button == null) {
+      button = initializeButton(viewType);
+    }
+    button.setVisibility(oldButton.getVisibility());
+    button.setTranslationY(oldButton.getTranslationY());
+    int childIndex = indexOfChild(oldButton);
+    removeView(oldButton);
+    buttonsPool.put(oldButton);
+    addView(button, childIndex);
+    buttons.set(buttonPosition, button);
+    hookListener(buttonPosition);
+    return button;
+  }
+
+  private void hookListeners() {
+    int numberOfButtons = buttons.size();
+    for (int i = 0; i < numberOfButtons; i++) {
+      hookListener(i);
+    }
+  }
+
+  /**
+   * Configures the listener shared by every button. The button position is stored as a tag, so
+   * the listener can map the button clicked to the ExpandableItem rendered.
+   */
+  private void hookListener(int buttonPosition) {
+    View button = buttons.get(buttonPosition);
+    button.setTag(R.id.expandable_selector_button_position, buttonPosition);
+    button.setOnClickListener(buttonClickListener);
+  }
+
+  /**
+   * Expands the ExpandableSelector if the first button is clicked while collapsed or notifies the
+   * click listeners. The View passed as parameter is the widget clicked or this view if the button
+   * was drawn on the canvas.
+   */
+  private void onButtonClicked(int buttonPosition, View button) {
+    int numberOfButtons = getNumberOfButtons();
+    if (numberOfButtons == 0) {
+      return;
+    }
+    boolean isFirstButton = buttonPosition == numberOfButtons - 1;
+    if (isFirstButton && isCollapsed()) {
+      if (canBeExpanded()) {
+        expand();
+      }
+      return;
+    }
+    int expandableItemPosition =
+        isFirstButton ? 0 : expandableItemsWindow.getExpandableItemPosition(buttonPosition);
+    notifyButtonClicked(expandableItemPosition, button);
+  }
+
+  private boolean canBeExpanded() {
+    return getNumberOfButtons() > 1 || isMaterializationPending || isInflatingButtons;
+  }
+
+  private int getNumberOfButtons() {
+    return isCanvasRenderingEnabled ? canvasButtons.size() : buttons.size();
+  }
+
+  private void notifyButtonClicked(int itemPosition, View button) {
+    if (clickListener != null) {
+      clickListener.onExpandableItemClickListener(itemPosition, button);
+    }
+    ExpandableItem expandableItem = expandableItems.get(itemPosition);
+    if (idClickListener != null && expandableItem.hasId()) {
+      idClickListener.onItemClick(expandableItem.getId(), itemPosition, button);
+    }
+  }
+
+  private View obtainButton(int expandableItemPosition) {
+    ExpandableItem expandableItem = expandableItems.get(expandableItemPosition);
+    int viewType = ExpandableItemViewPool.getViewType(expandableItem);
+    View button = buttonsPool.get(viewType);
+    if (button == null) {
+      button = initializeButton(viewType);
+    }
+    int visibility = expandableItemPosition == 0 ? View.VISIBLE : View.INVISIBLE;
+    button.setVisibility(visibility);
+    button.setTranslationY(0);
+    return button;
+  }
+
+  private View initializeButton(int viewType) {
+    return initializeButton(LayoutInflater.from(getContext()), this, viewType);
+  }
+
+  /**
+   * Inflates the widget used to render the view type passed as parameter. The parent is used just
+   * to generate the layout params of the widget and is null when the widget is inflated outside
+   * the UI thread.
+   */
+  private View initializeButton(LayoutInflater layoutInflater, ViewGroup parent, int viewType) {
+    View button = null;
+    if (viewType == ExpandableItemViewPool.TITLE_VIEW_TYPE) {
+      button = layoutInflater.inflate(R.layout.expandable_item_button, parent, false);
+    } else {
+      button = layoutInflater.inflate(R.layout.expandable_item_image_button, parent, false);
+      Drawable defaultImage = ((ImageButton) button).getDrawable();
+      button.setTag(R.id.expandable_selector_default_image, defaultImage);
+    }
+    button.setTag(R.id.expandable_selector_default_background, button.getBackground());
+    ExpandableItemViewPool.setViewType(button, viewType);
+    return button;
+  }
+
+  private void configureButtonContent(View button, ExpandableItem expandableItem) {
+    if (expandableItem.equals(button.getTag(R.id.expandable_selector_bound_item))) {
+      return;
+    }
+    button.setTag(R.id.expandable_selector_bound_item, expandableItem);
+    if (expandableItem.hasBackgroundId()) {
+      int backgroundId = expandableItem.getBackgroundId();
+      button.setBackgroundDrawable(getDrawable(backgroundId));
+    } else {
+      Drawable defaultBackground =
+          (Drawable) button.getTag(R.id.expandable_selector_default_background);
+      button.setBackgroundDrawable(defaultBackground);
+    }
+    if (expandableItem.hasTitle()) {
+      String text = expandableItem.getTitle();
+      ((Button) button).setText(text);
+    }
+    if (expandableItem.hasResourceId()) {
+      ImageButton imageButton = (ImageButton) button;
+      int resourceId = expandableItem.getResourceId();
+      imageButton.setImageDrawable(getDrawable(resourceId));
+    } else if (button instanceof ImageButton) {
+      Drawable defaultImage = (Drawable) button.getTag(R.id.expandable_selector_default_image);
+      ((ImageButton) button).setImageDrawable(defaultImage);
+    }
+  }
+
+  /**
+   * Measures outside the UI thread the titles of the ExpandableItems passed as parameter. The
+   * titles bound before the measure has finished are measured on the UI thread as usual.
+   */
+  private void precomputeTitles(List<ExpandableItem> expandableItems) {
+    Runnable titlesPrecomputation = createTitlesPrecomputation(expandableItems);
+    if (titlesPrecomputation != null) {
+      AsyncTask.THREAD_POOL_EXECUTOR.execute(titlesPrecomputation);
+    }
+  }
+
+  /**
+   * Returns a Runnable measuring outside the UI thread the titles of the ExpandableItems passed as
+   * parameter as they are shown, transformed and measured with a copy of the TextPaint used to
+   * render them. Returns null if there is no title to measure.
+   */
+  private Runnable createTitlesPrecomputation(List<ExpandableItem> expandableItems) {
+    if (!hasTitles(expandableItems)) {
+      return null;
+    }
+    Button titleTemplate = getTitleTemplate();
+    final List<String> titles = TitleCache.getTitles(expandableItems, titleTemplate);
+    final TextPaint titlePaint = new TextPaint(titleTemplate.getPaint());
+    return new Runnable() {
+      @Override public void run() {
+        TitleCache.getInstance().precompute(titles, titlePaint);
+      }
+    };
+  }
+
+  private boolean hasTitles(List<ExpandableItem> expandableItems) {
+    for (ExpandableItem expandableItem : expandableItems) {
+      if (expandableItem.hasTitle()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the Button used to resolve how the titles are shown. When the ExpandableItems are
+   * rendered by widgets a Button is inflated once for this purpose and never attached.
+   */
+  private Button getTitleTemplate() {
+    if (isCanvasRenderingEnabled) {
+      return canvasButtons.getTitleTemplate();
+    }
+    if (titleTemplate == null) {
+      titleTemplate = (Button) initializeButton(ExpandableItemViewPool.TITLE_VIEW_TYPE);
+    }
+    return titleTemplate;
+  }
+
+  private Drawable getDrawable(int drawableId) {
+    Context context = getContext();
+    return DrawableCache.getInstance(context).getDrawable(context, drawableId);
+  }
+
+  /**
+   * Requests a new layout and draw pass to render the buttons when they are drawn by this view
+   * instead of being attached as children.
+   */
+  private void requestButtonsLayout() {
+    if (isCanvasRenderingEnabled) {
+      requestLayout();
+      invalidate();
+    }
+  }
+
+  /**
+   * Requests a new draw pass to render the buttons when they are drawn by this view instead of
+   * being attached as children.
+   */
+  private void invalidateButtons() {
+    if (isCanvasRenderingEnabled) {
+      invalidate();
+    }
+  }
+
+  private boolean haveSameDimensions(MarginLayoutParams layoutParams,
+      MarginLayoutParams otherLayoutParams) {
+    return otherLayoutParams != null
+        && layoutParams.width == otherLayoutParams.width
+        && layoutParams.height == otherLayoutParams.height
+        && layoutParams.leftMargin == otherLayoutParams.leftMargin
+        && layoutParams.topMargin == otherLayoutParams.topMargin
+        && layoutParams.rightMargin == otherLayoutParams.rightMargin
+        && layoutParams.bottomMargin == otherLayoutParams.bottomMargin;
+  }
+
+  private void addIfMatchesParent(View child) {
+    ViewGroup.LayoutParams layoutParams = child.getLayoutParams();
+    if (layoutParams.width == LayoutParams.MATCH_PARENT
+        || layoutParams.height == LayoutParams.MATCH_PARENT) {
+      matchParentChildren.add(child);
+    }
+  }
+
+  private void measureMatchParentChildren(int widthMeasureSpec, int heightMeasureSpec) {
+    int paddingWidth = getPaddingLeft() + getPaddingRight();
+    int paddingHeight = getPaddingTop() + getPaddingBottom();
+    for (View child : matchParentChildren) {
+      MarginLayoutParams layoutParams = (MarginLayoutParams) child.getLayoutParams();
+      int horizontalSpace = paddingWidth + layoutParams.leftMargin + layoutParams.rightMargin;
+      int verticalSpace = paddingHeight + layoutParams.topMargin + layoutParams.bottomMargin;
+      int childWidthMeasureSpec = layoutParams.width == LayoutParams.MATCH_PARENT
+          ? MeasureSpec.makeMeasureSpec(Math.max(0, getMeasuredWidth() - horizontalSpace),
+          MeasureSpec.EXACTLY)
+          : getChildMeasureSpec(widthMeasureSpec, horizontalSpace, layoutParams.width);
+      int childHeightMeasureSpec = layoutParams.height == LayoutParams.MATCH_PARENT
+          ? MeasureSpec.makeMeasureSpec(Math.max(0, getMeasuredHeight() - verticalSpace),
+          MeasureSpec.EXACTLY)
+          : getChildMeasureSpec(heightMeasureSpec, verticalSpace, layoutParams.height);
+      child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+    }
+  }
+
+  /**
+   * Places every button at the bottom center of this view as a child with
+   * Gravity.BOTTOM | Gravity.CENTER_HORIZONTAL would be placed.
+   */
+  private void layoutButtons(int width, int height) {
+    if (isCanvasRenderingEnabled) {
+      canvasButtons.layout(width, height);
+      return;
+    }
+    int availableWidth = width - getPaddingLeft() - getPaddingRight();
+    for (View button : buttons) {
+      MarginLayoutParams layoutParams = (MarginLayoutParams) button.getLayoutParams();
+      int buttonWidth = button.getMeasuredWidth();
+      int buttonHeight = button.getMeasuredHeight();
+      int left = getPaddingLeft() + (availableWidth - buttonWidth) / 2 + layoutParams.leftMargin
+          - layoutParams.rightMargin;
+      int top = height - getPaddingBottom() - layoutParams.bottomMargin - buttonHeight;
+      button.layout(left, top, left + buttonWidth, top + buttonHeight);
+    }
+  }
+
+  /**
+   * Places the children not used to render ExpandableItems using the gravity configured in their
+   * layout params as FrameLayout does.
+   */
+  private void layoutChildren(int width, int height) {
+    int parentLeft = getPaddingLeft();
+    int parentRight = width - getPaddingRight();
+    int parentTop = getPaddingTop();
+    int parentBottom = height - getPaddingBottom();
+    int layoutDirection = getLayoutDirectionCompat();
+    int childCount = getChildCount();
+    for (int i = 0; i < childCount; i++) {
+      View child = getChildAt(i);
+      if (child.getVisibility() == GONE || ExpandableItemViewPool.isExpandableItemView(child)) {
+        continue;
+      }
+      LayoutParams layoutParams = (LayoutParams) child.getLayoutParams();
+      int childWidth = child.getMeasuredWidth();
+      int childHeight = child.getMeasuredHeight();
+      int gravity = layoutParams.gravity == -1 ? Gravity.TOP | Gravity.START : layoutParams.gravity;
+      int absoluteGravity = Gravity.getAbsoluteGravity(gravity, layoutDirection);
+      int childLeft;
+      switch (absoluteGravity & Gravity.HORIZONTAL_GRAVITY_MASK) {
+        case Gravity.CENTER_HORIZONTAL:
+          childLeft = parentLeft + (parentRight - parentLeft - childWidth) / 2
+              + layoutParams.leftMargin - layoutParams.rightMargin;
+          break;
+        case Gravity.RIGHT:
+          childLeft = parentRight - childWidth - layoutParams.rightMargin;
+          break;
+        default:
+          childLeft = parentLeft + layoutParams.leftMargin;
+      }
+      int childTop;
+      switch (gravity & Gravity.VERTICAL_GRAVITY_MASK) {
+        case Gravity.CENTER_VERTICAL:
+          childTop = parentTop + (parentBottom - parentTop - childHeight) / 2
+              + layoutParams.topMargin - layoutParams.bottomMargin;
+          break;
+        case Gravity.BOTTOM:
+          childTop = parentBottom - childHeight - layoutParams.bottomMargin;
+          break;
+        default:
+          childTop = parentTop + layoutParams.topMargin;
+      }
+      child.layout(childLeft, childTop, childLeft + childWidth, childTop + childHeight);
+    }
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+  private int getLayoutDirectionCompat() {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+      return getLayoutDirection();
+    }
+    return View.LAYOUT_DIRECTION_LTR;
+  }
+
+  private void drawButtons(Canvas canvas) {
+    canvasButtons.draw(canvas);
+  }
+
+  /**
+   * Maps the touch events received to the button drawn under the touch position, changing its
+   * pressed state and performing a click once the touch has finished over the same button.
+   * Returns true if a button is being pressed.
+   */
+  private boolean onButtonsTouchEvent(MotionEvent event) {
+    float x = event.getX();
+    float y = event.getY();
+    int pressedButtonPosition = canvasButtons.getPressedButtonPosition();
+    switch (event.getActionMasked()) {
+      case MotionEvent.ACTION_DOWN:
+        canvasButtons.setPressedButtonPosition(findButtonUnder(x, y));
+        break;
+      case MotionEvent.ACTION_MOVE:
+        if (pressedButtonPosition != CanvasButtons.NO_POSITION
+            && findButtonUnder(x, y) != pressedButtonPosition) {
+          releasePressedButton();
+        }
+        break;
+      case MotionEvent.ACTION_UP:
+        releasePressedButton();
+        if (pressedButtonPosition != CanvasButtons.NO_POSITION) {
+          playSoundEffect(SoundEffectConstants.CLICK);
+          onButtonClicked(pressedButtonPosition, this);
+        }
+        return pressedButtonPosition != CanvasButtons.NO_POSITION;
+      default:
+        releasePressedButton();
+    }
+    return canvasButtons.getPressedButtonPosition() != CanvasButtons.NO_POSITION;
+  }
+
+  /**
+   * Returns the position of the visible button under the coordinates passed as parameter or
+   * CanvasButtons.NO_POSITION if there is no button there.
+   */
+  private int findButtonUnder(float x, float y) {
+    if (isCanvasRenderingEnabled) {
+      return canvasButtons.findButtonUnder(x, y);
+    }
+    for (int i = buttons.size() - 1; i >= 0; i--) {
+      View button = buttons.get(i);
+      float top = button.getTop() + button.getTranslationY();
+      if (button.getVisibility() == View.VISIBLE
+          && x >= button.getLeft() && x < button.getRight()
+          && y >= top && y < top + button.getHeight()) {
+        return i;
+      }
+    }
+    return CanvasButtons.NO_POSITION;
+  }
+
+  private void releasePressedButton() {
+    if (isCanvasRenderingEnabled) {
+      canvasButtons.setPressedButtonPosition(CanvasButtons.NO_POSITION);
+    }
+  }
+
+  private void startRecordingMetrics(boolean isExpanding) {
+    boolean isRecordingNeeded = metricsListener != null || animationQualityGovernor.isEnabled();
+    if (!isRecordingNeeded || Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+      return;
+    }
+    if (frameMetricsRecorder == null) {
+      frameMetricsRecorder = new FrameMetricsRecorder(getContext());
+    }
+    stopRecordingMetrics();
+    isRecordingExpandMetrics = isExpanding;
+    frameMetricsRecorder.start();
+  }
+
+  private void stopRecordingMetrics() {
+    if (frameMetricsRecorder == null || !frameMetricsRecorder.isRecording()) {
+      return;
+    }
+    ExpandableSelectorMetrics metrics = frameMetricsRecorder.stop(metricsTag);
+    animationQualityGovernor.onAnimationMetrics(metrics);
+    if (metricsListener == null) {
+      return;
+    }
+    if (isRecordingExpandMetrics) {
+      metricsListener.onExpandMetrics(metrics);
+    } else {
+      metricsListener.onCollapseMetrics(metrics);
+    }
+  }
+
+  private void notifyExpand() {
+    if (hasListenerConfigured()) {
+      listener.onExpand();
+    }
   }
 
   private void notifyCollapse() {
@@ -352,16 +1987,80 @@ public class ExpandableSelector extends FrameLayout {
   }
 
   private void setExpandableItems(List<ExpandableItem> expandableItems) {
+    expandableItemsVersion++;
     this.expandableItems = new ArrayList<ExpandableItem>(expandableItems);
+    expandableItemsWindow.setNumberOfItems(expandableItems.size(), 0);
+    itemPositionsById.clear();
+    int numberOfItems = expandableItems.size();
+    for (int i = 0; i < numberOfItems; i++) {
+      indexItemId(i);
+    }
+  }
+
+  private void indexItemId(int expandableItemPosition) {
+    ExpandableItem expandableItem = expandableItems.get(expandableItemPosition);
+    if (expandableItem.hasId()) {
+      itemPositionsById.put(expandableItem.getId(), expandableItemPosition);
+    }
   }
 
-  private void bringChildsToFront(List<ExpandableItem> expandableItems) {
+  private void unindexItemId(ExpandableItem expandableItem, int expandableItemPosition) {
+    if (!expandableItem.hasId()) {
+      return;
+    }
+    Integer indexedPosition = itemPositionsById.get(expandableItem.getId());
+    if (indexedPosition != null && indexedPosition == expandableItemPosition) {
+      itemPositionsById.remove(expandableItem.getId());
+    }
+  }
+
+  private void bringChildsToFront() {
     int childCount = getChildCount();
-    int numberOfExpandableItems = expandableItems.size();
-    if (childCount > numberOfExpandableItems) {
-      for (int i = 0; i < childCount - numberOfExpandableItems; i++) {
-        getChildAt(i).bringToFront();
+    int numberOfButtons = buttons.size();
+    if (childCount > numberOfButtons) {
+      List<View> childs = new ArrayList<View>(childCount - numberOfButtons);
+      for (int i = 0; i < childCount; i++) {
+        View child = getChildAt(i);
+        if (!ExpandableItemViewPool.isExpandableItemView(child)) {
+          childs.add(child);
+        }
       }
+      for (View child : childs) {
+        child.bringToFront();
+      }
+    }
+  }
+
+  /**
+   * State saved to restore the collapsed/expanded state without performing any animation.
+   */
+  static class SavedState extends BaseSavedState {
+
+    public static final Parcelable.Creator<SavedState> CREATOR =
+        new Parcelable.Creator<SavedState>() {
+          @Override public SavedState createFromParcel(Parcel source) {
+            return new SavedState(source);
+          }
+
+          @Override public SavedState[] newArray(int size) {
+            return new SavedState[size];
+          }
+        };
+
+    private boolean isExpanded;
+
+    SavedState(Parcelable superState) {
+      super(superState);
+    }
+
+    private SavedState(Parcel source) {
+      super(source);
+      isExpanded = source.readInt() == 1;
+    }
+
+    @Override public void writeToParcel(Parcel dest, int flags) {
+      super.writeToParcel(dest, flags);
+      dest.writeInt(isExpanded ? 1 : 0);
     }
   }
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2015 Karumi.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.karumi.expandableselector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Coordinates the collapsed/expanded state of a group of ExpandableSelector widgets. Every
+ * ExpandableSelector affected by expandAll, collapseAll or the "only one expanded" policy starts
+ * its animation in the same frame, so the animations of the whole group share the frame
+ * callbacks and their layout requests are resolved in the same layout pass on every frame. When
+ * an ExpandableSelector is expanded without animation, for instance when it's bound or its state
+ * is restored, the rest of the group is collapsed without animation too.
+ */
+public class ExpandableSelectorGroup {
+
+  private final List<ExpandableSelector> expandableSelectors = new ArrayList<ExpandableSelector>();
+  private boolean onlyOneExpanded;
+
+  /**
+   * Adds the ExpandableSelector passed as parameter to the group. An ExpandableSelector can be
+   * part of just one group, adding it to a new group removes it from the previous one.
+   */
+  public void addExpandableSelector(ExpandableSelector expandableSelector) {
+    validateExpandableSelector(expandableSelector);
+    if (expandableSelectors.contains(expandableSelector)) {
+      return;
+    }
+    ExpandableSelectorGroup previousGroup = expandableSelector.getExpandableSelectorGroup();
+    if (previousGroup != null) {
+      previousGroup.removeExpandableSelector(expandableSelector);
+    }
+    expandableSelectors.add(expandableSelector);
+    expandableSelector.setExpandableSelectorGroup(this);
+  }
+
+  /**
+   * Removes the ExpandableSelector passed as parameter from the group.
+   */
+  public void removeExpandableSelector(ExpandableSelector expandableSelector) {
+    validateExpandableSelector(expandableSelector);
+    if (expandableSelectors.remove(expandableSelector)) {
+      expandableSelector.setExpandableSelectorGroup(null);
+    }
+  }
+
+  /**
+   * Configures the group to collapse every expanded ExpandableSelector when other one is
+   * expanded. The collapse and expand animations start in the same frame and, if the
+   * ExpandableSelector is expanded without animation, the rest are collapsed without animation.
+   */
+  public void setOnlyOneExpanded(boolean onlyOneExpanded) {
+    this.onlyOneExpanded = onlyOneExpanded;
+  }
+
+  /**
+   * Expands every collapsed ExpandableSelector in the group. This method can't be used if the
+   * group has been configured to keep only one ExpandableSelector expanded.
+   */
+  public void expandAll() {
+    if (onlyOneExpanded) {
+      throw new IllegalStateException(
+          "You can't expand all the ExpandableSelectors if only one can be expanded.");
+    }
+    int numberOfExpandableSelectors = expandableSelectors.size();
+    for (int i = 0; i < numberOfExpandableSelectors; i++) {
+      ExpandableSelector expandableSelector = expandableSelectors.get(i);
+      if (expandableSelector.isCollapsed()) {
+        expandableSelector.expand();
+      }
+    }
+  }
+
+  /**
+   * Collapses every expanded ExpandableSelector in the group.
+   */
+  public void collapseAll() {
+    collapseAllBut(null, true);
+  }
+
+  /**
+   * Applies the "only one expanded" policy once the ExpandableSelector passed as parameter has
+   * been expanded, animating the collapses just if the expand was animated.
+   */
+  void onExpand(ExpandableSelector expandedSelector, boolean animate) {
+    if (onlyOneExpanded) {
+      collapseAllBut(expandedSelector, animate);
+    }
+  }
+
+  private void collapseAllBut(ExpandableSelector excludedSelector, boolean animate) {
+    int numberOfExpandableSelectors = expandableSelectors.size();
+    for (int i = 0; i < numberOfExpandableSelectors; i++) {
+      ExpandableSelector expandableSelector = expandableSelectors.get(i);
+      if (expandableSelector != excludedSelector && expandableSelector.isExpanded()) {
+        expandableSelector.setExpanded(false, animate);
+      }
+    }
+  }
+
+  private void validateExpandableSelector(ExpandableSelector expandableSelector) {
+    if (expandableSelector == null) {
+      throw new IllegalArgumentException(
+          "You can't use a null instance of ExpandableSelector as parameter.");
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2015 Karumi.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.karumi.expandableselector;
+
+/**
+ * Contains the frame timing measured while a expand or collapse animation was performed in a
+ * ExpandableSelector widget. The tag is the one configured with the
+ * ExpandableSelectorMetricsListener and can be used to identify the widget measured. Times are
+ * expressed in nanoseconds.
+ */
+public class ExpandableSelectorMetrics {
+
+  private final String tag;
+  private final int frameCount;
+  private final int droppedFrames;
+  private final long worstFrameTimeNanos;
+  private final long totalDurationNanos;
+
+  public ExpandableSelectorMetrics(String tag, int frameCount, int droppedFrames,
+      long worstFrameTimeNanos, long totalDurationNanos) {
+    this.tag = tag;
+    this.frameCount = frameCount;
+    this.droppedFrames = droppedFrames;
+    this.worstFrameTimeNanos = worstFrameTimeNanos;
+    this.totalDurationNanos = totalDurationNanos;
+  }
+
+  public String getTag() {
+    return tag;
+  }
+
+  public int getFrameCount() {
+    return frameCount;
+  }
+
+  public int getDroppedFrames() {
+    return droppedFrames;
+  }
+
+  public long getWorstFrameTimeNanos() {
+    return worstFrameTimeNanos;
+  }
+
+  public long getTotalDurationNanos() {
+    return totalDurationNanos;
+  }
+
+  @Override public String toString() {
+    return "ExpandableSelectorMetrics{"
+        + "tag='" + tag + '\''
+        + ", frameCount=" + frameCount
+        + ", droppedFrames=" + droppedFrames
+        + ", worstFrameTimeNanos=" + worstFrameTimeNanos
+        + ", totalDurationNanos=" + totalDurationNanos
+        + '}';
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2015 Karumi.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.karumi.expandableselector;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.view.Choreographer;
+import android.view.WindowManager;
+
+/**
+ * Measures the frames rendered while it's recording using a Choreographer.FrameCallback. A frame
+ * is considered dropped when the time between two consecutive frames is longer than the display
+ * refresh period.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+class FrameMetricsRecorder implements Choreographer.FrameCallback {
+
+  private static final float DEFAULT_REFRESH_RATE = 60;
+  private static final long NANOS_PER_SECOND = 1000000000L;
+
+  private final long refreshPeriodNanos;
+
+  private boolean isRecording;
+  private long startTimeNanos;
+  private long lastFrameTimeNanos;
+  private int frameCount;
+  private int droppedFrames;
+  private long worstFrameTimeNanos;
+
+  FrameMetricsRecorder(Context context) {
+    WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+    float refreshRate = windowManager.getDefaultDisplay().getRefreshRate();
+    if (refreshRate <= 0) {
+      refreshRate = DEFAULT_REFRESH_RATE;
+    }
+    this.refreshPeriodNanos = (long) (NANOS_PER_SECOND / refreshRate);
+  }
+
+  /**
+   * Returns true if the recorder is measuring frames.
+   */
+  boolean isRecording() {
+    return isRecording;
+  }
+
+  /**
+   * Starts measuring the frames rendered from now on.
+   */
+  void start() {
+    isRecording = true;
+    startTimeNanos = System.nanoTime();
+    lastFrameTimeNanos = 0;
+    frameCount = 0;
+    droppedFrames = 0;
+    worstFrameTimeNanos = 0;
+    Choreographer choreographer = Choreographer.getInstance();
+    choreographer.removeFrameCallback(this);
+    choreographer.postFrameCallback(this);
+  }
+
+  /**
+   * Stops measuring frames and returns the metrics measured since the last start invocation.
+   */
+  ExpandableSelectorMetrics stop(String tag) {
+    isRecording = false;
+    Choreographer.getInstance().removeFrameCallback(this);
+    long totalDurationNanos = System.nanoTime() - startTimeNanos;
+    return new ExpandableSelectorMetrics(tag, frameCount, droppedFrames, worstFrameTimeNanos,
+        totalDurationNanos);
+  }
+
+  @Override public void doFrame(long frameTimeNanos) {
+    if (!isRecording) {
+      return;
+    }
+    frameCount++;
+    if (lastFrameTimeNanos != 0) {
+      long frameTimeDelta = frameTimeNanos - lastFrameTimeNanos;
+      worstFrameTimeNanos = Math.max(worstFrameTimeNanos, frameTimeDelta);
+      long elapsedPeriods = (frameTimeDelta + refreshPeriodNanos / 2) / refreshPeriodNanos;
+      droppedFrames += Math.max(0, elapsedPeriods - 1);
+    }
+    lastFrameTimeNanos = frameTimeNanos;
+    Choreographer.getInstance().postFrameCallback(this);
+  }
+}
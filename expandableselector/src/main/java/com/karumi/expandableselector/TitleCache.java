@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2015 Karumi.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.karumi.expandableselector;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.text.Layout;
+import android.text.TextPaint;
+import android.text.method.TransformationMethod;
+import android.util.LruCache;
+import android.widget.TextView;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Process-wide cache of the ExpandableItem title widths. The titles are measured outside the UI
+ * thread as they are shown, already transformed by the Button widgets, and stored together with
+ * the TextPaint configuration used, so equal titles shown by different ExpandableSelector widgets
+ * are measured just once. The widths are read by the titles drawn on the ExpandableSelector
+ * canvas. Button widgets can't use them, PrecomputedText is not available in the Android versions
+ * supported, but measuring a title with the same TextPaint fills the text layout cache shared by
+ * the framework, so the layout pass measuring the Button widgets finds every title shaped.
+ */
+class TitleCache {
+
+  private static final int MAX_CACHED_TITLES = 256;
+
+  private static TitleCache instance;
+
+  private final LruCache<String, Float> titleWidths =
+      new LruCache<String, Float>(MAX_CACHED_TITLES);
+
+  private TitleCache() {
+  }
+
+  /**
+   * Returns the TitleCache instance shared by every ExpandableSelector.
+   */
+  static synchronized TitleCache getInstance() {
+    if (instance == null) {
+      instance = new TitleCache();
+    }
+    return instance;
+  }
+
+  /**
+   * Returns the titles of the ExpandableItems passed as parameter transformed as the TextView
+   * passed as parameter shows them, for instance in upper case if textAllCaps is enabled.
+   */
+  static List<String> getTitles(List<ExpandableItem> expandableItems, TextView textView) {
+    List<String> titles = new ArrayList<String>();
+    for (ExpandableItem expandableItem : expandableItems) {
+      if (expandableItem.hasTitle()) {
+        titles.add(getTitle(expandableItem.getTitle(), textView));
+      }
+    }
+    return titles;
+  }
+
+  /**
+   * Returns the title passed as parameter transformed as the TextView passed as parameter shows it.
+   */
+  static String getTitle(String title, TextView textView) {
+    TransformationMethod transformationMethod = textView.getTransformationMethod();
+    if (transformationMethod == null) {
+      return title;
+    }
+    return transformationMethod.getTransformation(title, textView).toString();
+  }
+
+  /**
+   * Measures the titles passed as parameter not measured before with the TextPaint passed as
+   * parameter. Designed to be invoked outside the UI thread, so the TextPaint has to be a copy not
+   * modified while this method is running.
+   */
+  void precompute(List<String> titles, TextPaint paint) {
+    String paintKey = getKey(paint);
+    for (String title : titles) {
+      String key = paintKey + title;
+      if (titleWidths.get(key) == null) {
+        titleWidths.put(key, Layout.getDesiredWidth(title, paint));
+      }
+    }
+  }
+
+  /**
+   * Returns the width of the title passed as parameter measured with the TextPaint passed as
+   * parameter. Titles not measured before are measured here and stored.
+   */
+  float getWidth(String title, TextPaint paint) {
+    String key = getKey(paint) + title;
+    Float width = titleWidths.get(key);
+    if (width == null) {
+      width = Layout.getDesiredWidth(title, paint);
+      titleWidths.put(key, width);
+    }
+    return width;
+  }
+
+  /**
+   * Returns a key identifying the TextPaint configuration affecting how a text is measured.
+   */
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+  private String getKey(TextPaint textPaint) {
+    StringBuilder key = new StringBuilder();
+    key.append(textPaint.getTextSize())
+        .append('|').append(textPaint.getTextScaleX())
+        .append('|').append(textPaint.getTextSkewX())
+        .append('|').append(textPaint.getFlags())
+        .append('|').append(System.identityHashCode(textPaint.getTypeface()));
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+      key.append('|').append(textPaint.getTextLocale());
+    }
+    return key.append('|').toString();
+  }
+}
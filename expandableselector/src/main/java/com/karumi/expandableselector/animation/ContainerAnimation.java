@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2015 Karumi.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.karumi.expandableselector.animation;
+
+/**
+ * Animation used to change the height of the container driven by ExpandCollapseAnimation. The
+ * implementations don't own any clock, the fraction of the animation performed is applied on
+ * every frame of the ExpandCollapseAnimation.
+ */
+interface ContainerAnimation {
+
+  /**
+   * Configures the height the container has to be changed to from its current size.
+   */
+  void start(float toHeight);
+
+  /**
+   * Changes the container size to the one associated to the fraction passed as parameter.
+   */
+  void applyFraction(float fraction);
+
+  /**
+   * Notifies the listener passed as parameter once the container has its final size.
+   */
+  void end(ExpandableSelectorAnimator.Listener listener);
+
+  /**
+   * Stops the animation without notifying any listener.
+   */
+  void cancel();
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2015 Karumi.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.karumi.expandableselector.animation;
+
+import android.animation.TimeInterpolator;
+import android.animation.ValueAnimator;
+import android.os.Handler;
+import android.view.View;
+import android.view.animation.LinearInterpolator;
+
+/**
+ * Animation used to collapse or expand the ExpandableSelector driving the buttons translation in
+ * the Y axis and the container size from a single ValueAnimator. On every frame the time elapsed
+ * is used to calculate the fraction performed by every button, delayed by its stagger, and by the
+ * container, each phase with its own interpolator, so all of them are updated from the same frame
+ * callback. The same instance is reused by every collapse/expand animation. Starting it while
+ * running cancels the previous animation without notifying its listener and continues from the
+ * current translation of every button and the current container size. The end of the animation
+ * is detected from the last frame instead of registering an Animator.AnimatorListener, so the
+ * ValueAnimator doesn't copy its listeners every time it's started or finished.
+ */
+class ExpandCollapseAnimation implements ValueAnimator.AnimatorUpdateListener {
+
+  private final View container;
+  private final ValueAnimator valueAnimator = ValueAnimator.ofFloat(0, 1);
+  private final Handler handler = new Handler();
+  private final Runnable endRunnable = new Runnable() {
+    @Override public void run() {
+      ExpandableSelectorAnimator.Listener listener = endListener;
+      endListener = null;
+      containerAnimation.end(listener);
+    }
+  };
+
+  private ExpandableSelectorAnimator.Buttons buttons;
+  private int numberOfButtons;
+  private float[] fromY = new float[0];
+  private float[] toY = new float[0];
+  private long[] delays = new long[0];
+  private TimeInterpolator buttonsInterpolator;
+  private long buttonsDuration;
+  private ContainerAnimation containerAnimation;
+  private TimeInterpolator containerInterpolator;
+  private long containerDuration;
+  private long duration;
+  private ExpandableSelectorAnimator.Listener listener;
+  private ExpandableSelectorAnimator.Listener endListener;
+  private ExpandableSelectorAnimator.FrameListener frameListener;
+
+  ExpandCollapseAnimation(View container) {
+    this.container = container;
+    valueAnimator.setInterpolator(new LinearInterpolator());
+    valueAnimator.addUpdateListener(this);
+  }
+
+  /**
+   * Configures a listener notified on every frame with the fraction of the whole animation
+   * performed, after every button and the container have been updated.
+   */
+  void setFrameListener(ExpandableSelectorAnimator.FrameListener frameListener) {
+    this.frameListener = frameListener;
+  }
+
+  /**
+   * Creates the objects needed to animate the number of buttons passed as parameter.
+   */
+  void ensureCapacity(int numberOfButtons) {
+    if (fromY.length < numberOfButtons) {
+      fromY = new float[numberOfButtons];
+      toY = new float[numberOfButtons];
+      delays = new long[numberOfButtons];
+    }
+  }
+
+  /**
+   * Configures the buttons to move from their current translation using the interpolator and
+   * duration passed as parameter. If the animation was running it's cancelled without notifying
+   * its listener. Every button is kept in its current translation until a target is configured
+   * with setButtonTarget. The number of buttons animated is the one configured when this method
+   * is invoked.
+   */
+  void setButtons(ExpandableSelectorAnimator.Buttons buttons, TimeInterpolator interpolator,
+      long duration) {
+    cancelValueAnimator();
+    this.buttons = buttons;
+    this.numberOfButtons = buttons.size();
+    this.buttonsInterpolator = interpolator;
+    this.buttonsDuration = duration;
+    ensureCapacity(numberOfButtons);
+    for (int i = 0; i < numberOfButtons; i++) {
+      float translationY = buttons.getTranslationY(i);
+      fromY[i] = translationY;
+      toY[i] = translationY;
+      delays[i] = 0;
+    }
+  }
+
+  /**
+   * Configures the translation the button in the position passed as parameter has to be moved to
+   * and the time it has to wait before starting to move.
+   */
+  void setButtonTarget(int buttonPosition, float toY, long delay) {
+    this.toY[buttonPosition] = toY;
+    this.delays[buttonPosition] = delay;
+  }
+
+  /**
+   * Configures the animation used to change the container height to the one passed as parameter
+   * using the interpolator and duration passed as parameter. If a different container animation
+   * was configured before it's cancelled.
+   */
+  void setContainer(ContainerAnimation containerAnimation, float toHeight,
+      TimeInterpolator interpolator, long duration) {
+    if (this.containerAnimation != null && this.containerAnimation != containerAnimation) {
+      this.containerAnimation.cancel();
+    }
+    this.containerAnimation = containerAnimation;
+    this.containerInterpolator = interpolator;
+    this.containerDuration = duration;
+    containerAnimation.start(toHeight);
+  }
+
+  /**
+   * Starts the animation configured and notifies the listener passed as parameter once every
+   * button has been moved and the container has its final size.
+   */
+  void start(ExpandableSelectorAnimator.Listener listener) {
+    this.listener = listener;
+    duration = containerDuration;
+    for (int i = 0; i < numberOfButtons; i++) {
+      duration = Math.max(duration, delays[i] + buttonsDuration);
+    }
+    valueAnimator.setDuration(duration);
+    valueAnimator.start();
+  }
+
+  /**
+   * Stops the animation leaving the buttons in their current translation and without notifying
+   * the listener.
+   */
+  void cancel() {
+    cancelValueAnimator();
+    if (containerAnimation != null) {
+      containerAnimation.cancel();
+    }
+  }
+
+  @Override public void onAnimationUpdate(ValueAnimator animation) {
+    float fraction = animation.getAnimatedFraction();
+    applyPlayTime(fraction * duration);
+    if (frameListener != null) {
+      frameListener.onAnimationFrame(fraction);
+    }
+    if (fraction >= 1 && listener != null) {
+      notifyEnd();
+    }
+  }
+
+  /**
+   * Notifies the listener once the ValueAnimator has finished the current frame, so the listener
+   * can start a new animation without the last frame ending it.
+   */
+  private void notifyEnd() {
+    endListener = listener;
+    listener = null;
+    handler.post(endRunnable);
+  }
+
+  /**
+   * Moves every button and resizes the container to the position associated to the time passed
+   * as parameter. Buttons drawn by the container instead of being attached to it invalidate the
+   * container once per frame.
+   */
+  private void applyPlayTime(float playTime) {
+    boolean isContainerInvalidationNeeded = false;
+    for (int i = 0; i < numberOfButtons; i++) {
+      float fraction = getFraction(playTime - delays[i], buttonsDuration, buttonsInterpolator);
+      buttons.setTranslationY(i, (toY[i] - fromY[i]) * fraction + fromY[i]);
+      View button = buttons.getView(i);
+      isContainerInvalidationNeeded |= button == null || button.getParent() != container;
+    }
+    containerAnimation.applyFraction(
+        getFraction(playTime, containerDuration, containerInterpolator));
+    if (isContainerInvalidationNeeded) {
+      container.invalidate();
+    }
+  }
+
+  private float getFraction(float playTime, long duration, TimeInterpolator interpolator) {
+    float fraction;
+    if (playTime >= duration) {
+      fraction = 1;
+    } else if (playTime <= 0) {
+      fraction = 0;
+    } else {
+      fraction = playTime / duration;
+    }
+    return interpolator.getInterpolation(fraction);
+  }
+
+  private void cancelValueAnimator() {
+    listener = null;
+    if (valueAnimator.isStarted()) {
+      valueAnimator.cancel();
+    }
+    if (endListener != null) {
+      handler.removeCallbacks(endRunnable);
+      endListener = null;
+    }
+  }
+}
@@ -19,44 +19,79 @@ package com.karumi.expandableselector.animation;
 import java.util.ArrayList;
 import java.util.List;
 
-import android.animation.Animator;
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
 import android.animation.TimeInterpolator;
-import android.view.Gravity;
+import android.os.Build;
+import android.content.Context;
 import android.view.View;
-import android.view.animation.Animation;
+import android.view.ViewGroup;
 import android.view.animation.AnimationUtils;
-import android.view.animation.Interpolator;
-import android.widget.FrameLayout;
 
 /**
  * Performs all the animations and size or position changes related to the
  * ExpandableSelectorComponent and controls the view state in terms of collapsed/expanded
- * animation.
+ * animation. The buttons and the container are animated by a single ExpandCollapseAnimation, so
+ * all of them are updated from the same frame callback.
  */
 public class ExpandableSelectorAnimator {
 
-  private static final String Y_ANIMATION = "translationY";
+  public static final int CONTAINER_ANIMATION_RESIZE = 0;
+  public static final int CONTAINER_ANIMATION_REVEAL = 1;
+  public static final int HARDWARE_LAYERS_NONE = 0;
+  public static final int HARDWARE_LAYERS_BUTTONS = 1;
+  public static final int HARDWARE_LAYERS_ALL = 2;
+
   private static final float CONTAINER_ANIMATION_OFFSET = 1.16f;
 
   private final View container;
   private final int animationDuration;
-  private final int expandInterpolatorId;
-  private final int collapseInterpolatorId;
-  private final int containerInterpolatorId;
-
-  private List<View> buttons;
+  private TimeInterpolator expandInterpolator;
+  private TimeInterpolator collapseInterpolator;
+  private TimeInterpolator containerInterpolator;
+  private ExpandCollapseAnimation expandCollapseAnimation;
+  private ResizeAnimation resizeAnimation;
+  private RevealAnimation revealAnimation;
+  private InstantResizeAnimation instantResizeAnimation;
+  private final HardwareLayers hardwareLayers = new HardwareLayers();
+  private FrameListener frameListener;
+  private Listener expandListener;
+  private Listener collapseListener;
+
+  private Buttons buttons;
   private boolean isCollapsed = true;
   private boolean hideFirstItemOnCollapse;
+  private int maxVisibleItems;
+  private int containerAnimation = CONTAINER_ANIMATION_RESIZE;
+  private int[] expandedOffsets = new int[1];
+  private boolean areExpandedOffsetsValid;
+  private int hardwareLayersMode = HARDWARE_LAYERS_BUTTONS;
+  private int staggerDelay;
+  private float durationFactor = 1;
+  private boolean isContainerAnimationEnabled = true;
+  private float remainingFraction = 1;
+
+  private final Listener expandContainerListener = new Listener() {
+    @Override public void onAnimationFinished() {
+      hardwareLayers.restore();
+      expandListener.onAnimationFinished();
+    }
+  };
+
+  private final Listener collapseContainerListener = new Listener() {
+    @Override public void onAnimationFinished() {
+      hardwareLayers.restore();
+      changeButtonsVisibility(View.INVISIBLE);
+      collapseListener.onAnimationFinished();
+    }
+  };
 
   public ExpandableSelectorAnimator(View container, int animationDuration, int expandInterpolatorId, int
           collapseInterpolatorId, int containerInterpolatorId) {
     this.container = container;
     this.animationDuration = animationDuration;
-    this.expandInterpolatorId = expandInterpolatorId;
-    this.collapseInterpolatorId = collapseInterpolatorId;
-    this.containerInterpolatorId = containerInterpolatorId;
+    Context context = container.getContext();
+    this.expandInterpolator = AnimationUtils.loadInterpolator(context, expandInterpolatorId);
+    this.collapseInterpolator = AnimationUtils.loadInterpolator(context, collapseInterpolatorId);
+    this.containerInterpolator = AnimationUtils.loadInterpolator(context, containerInterpolatorId);
   }
 
   /**
@@ -77,40 +112,109 @@ public class ExpandableSelectorAnimator {
    * Configures the List of buttons used to calculate the animation parameters.
    */
   public void setButtons(List<View> buttons) {
+    setButtons(new ViewButtons(buttons));
+  }
+
+  /**
+   * Configures the buttons used to calculate the animation parameters when they are not widgets
+   * attached to the container, for instance because the container draws them on its canvas.
+   */
+  public void setButtons(Buttons buttons) {
     this.buttons = buttons;
+    this.areExpandedOffsetsValid = false;
   }
 
   /**
    * Expands the ExpandableSelector performing a resize animation and at the same time moves the
    * buttons configures as childrens to the associated position given the order in the List<View>
    * used to keep the reference to the buttons. The visibility of the buttons inside the
-   * ExpandableSelector changes to View.VISIBLE before to perform the animation.
+   * ExpandableSelector changes to View.VISIBLE before to perform the animation. The objects used
+   * to animate the buttons and the container are reused between invocations.
    */
   public void expand(Listener listener) {
+    remainingFraction = calculateRemainingFraction(true);
     setCollapsed(false);
     changeButtonsVisibility(View.VISIBLE);
-    expandButtons();
-    expandContainer(listener);
+    enableHardwareLayers();
+    expandListener = listener;
+    startAnimation(true, expandInterpolator, getSumHeight(), expandContainerListener);
   }
 
   /**
    * Collapses the ExpandableSelector performing a resize animation and at the same time moves the
    * buttons configures as childrens to the associated position given the order in the List<View>
    * used to keep the reference to the buttons. The visibility of the buttons inside the
-   * ExpandableSelector changes to View.INVISIBLE after the resize animation.
+   * ExpandableSelector changes to View.INVISIBLE after the resize animation. If an expand
+   * animation is running it's cancelled, the listener passed to expand is not notified and the
+   * collapse animation starts from the current position with a duration proportional to the
+   * remaining distance. The same applies to expand invocations while collapsing.
    */
   public void collapse(Listener listener) {
+    remainingFraction = calculateRemainingFraction(false);
     setCollapsed(true);
-    collapseButtons();
-    collapseContainer(listener);
+    enableHardwareLayers();
+    collapseListener = listener;
+    startAnimation(false, collapseInterpolator, getFirstItemHeight(), collapseContainerListener);
+  }
+
+  /**
+   * Changes the collapsed/expanded state without performing any animation. Any animation running
+   * is cancelled without notifying its listener and the buttons visibility is changed as the
+   * collapse/expand animation would do once finished. The buttons have to be moved invoking
+   * relocateButtons once they have been laid out.
+   */
+  public void setCollapsedWithoutAnimation(boolean isCollapsed) {
+    cancelAnimations();
+    setCollapsed(isCollapsed);
+    changeButtonsVisibility(isCollapsed ? View.INVISIBLE : View.VISIBLE);
+  }
+
+  /**
+   * Resizes the container to the size associated to the current collapsed/expanded state without
+   * performing any animation. Buttons not laid out yet are measured to calculate the container
+   * size, so this method can be used before the first layout pass. The buttons have to be moved
+   * invoking relocateButtons once they have been laid out. Nothing is done if the container has
+   * no layout params yet, so it has to be invoked again once the container has been attached.
+   */
+  public void resizeContainerWithoutAnimation() {
+    ViewGroup.LayoutParams layoutParams = container.getLayoutParams();
+    if (buttons.size() == 0 || layoutParams == null) {
+      return;
+    }
+    int height = (int) (isCollapsed ? getFirstItemHeight() : getSumHeight());
+    if (layoutParams.height != height) {
+      layoutParams.height = height;
+      container.requestLayout();
+    }
   }
 
   /**
-   * Configures the Button/ImageButton added to the ExpandableSelector to match with the initial
-   * configuration needed by the component.
+   * Moves the buttons to the position associated to the current collapsed/expanded state and
+   * resizes the container without performing any animation. Returns true if the container size
+   * has been changed and a new layout has been requested. Used when the buttons configured change
+   * or the state has been changed without animation. The container is not resized if it has no
+   * layout params yet.
    */
-  public void initializeButton(View button) {
-    changeGravityToBottomCenterHorizontal(button);
+  public boolean relocateButtons() {
+    int numberOfButtons = buttons.size();
+    if (numberOfButtons == 0) {
+      return false;
+    }
+    for (int i = 0; i < numberOfButtons; i++) {
+      float y = isCollapsed ? 0 : calculateExpandedYPosition(i);
+      buttons.setTranslationY(i, y);
+    }
+    ViewGroup.LayoutParams layoutParams = container.getLayoutParams();
+    if (layoutParams == null) {
+      return false;
+    }
+    int height = (int) (isCollapsed ? getFirstItemHeight() : getSumHeight());
+    if (layoutParams.height == height) {
+      return false;
+    }
+    layoutParams.height = height;
+    container.requestLayout();
+    return true;
   }
 
   /**
@@ -122,157 +226,335 @@ public class ExpandableSelectorAnimator {
     this.hideFirstItemOnCollapse = hideFirstItemOnCollapsed;
   }
 
+  /**
+   * Configures the animation used to change the container size. CONTAINER_ANIMATION_RESIZE changes
+   * the container layout on every frame. CONTAINER_ANIMATION_REVEAL changes the container layout
+   * just once and animates its clip bounds and translation, this mode is only available from
+   * Android 4.3 and CONTAINER_ANIMATION_RESIZE is used in previous versions.
+   */
+  public void setContainerAnimation(int containerAnimation) {
+    this.containerAnimation = containerAnimation;
+  }
+
+  /**
+   * Configures the views promoted to View.LAYER_TYPE_HARDWARE while the collapse/expand animations
+   * are running. HARDWARE_LAYERS_NONE doesn't change any layer type, HARDWARE_LAYERS_BUTTONS, the
+   * default value, promotes just the buttons and HARDWARE_LAYERS_ALL promotes the container too.
+   * The previous layer types are restored once the animation has finished.
+   */
+  public void setHardwareLayersMode(int hardwareLayersMode) {
+    this.hardwareLayersMode = hardwareLayersMode;
+  }
+
+  /**
+   * Configures the max number of buttons visible once the ExpandableSelector is expanded. When the
+   * number of buttons configured is bigger than this value every row is considered to have the
+   * height of the last button and the expanded size is calculated from that row height instead of
+   * measuring every button. Use 0 to show every button.
+   */
+  public void setMaxVisibleItems(int maxVisibleItems) {
+    this.maxVisibleItems = maxVisibleItems;
+  }
+
+  /**
+   * Configures the interpolators used to move the buttons while expanding and collapsing and the
+   * one used to resize the container.
+   */
+  public void setInterpolators(TimeInterpolator expandInterpolator,
+      TimeInterpolator collapseInterpolator, TimeInterpolator containerInterpolator) {
+    this.expandInterpolator = expandInterpolator;
+    this.collapseInterpolator = collapseInterpolator;
+    this.containerInterpolator = containerInterpolator;
+  }
+
+  /**
+   * Configures the time in milliseconds every button waits for the previous one before starting
+   * to move. Buttons start moving from the first item to the last one while expanding and in the
+   * opposite order while collapsing. The container animation is extended to cover the whole
+   * buttons animation. Use 0, the default value, to move every button at the same time.
+   */
+  public void setStaggerDelay(int staggerDelay) {
+    this.staggerDelay = staggerDelay;
+  }
+
+  /**
+   * Configures the factor applied to the duration and stagger delay of the next collapse/expand
+   * animations. Use 1, the default value, to keep the configured duration.
+   */
+  public void setDurationFactor(float durationFactor) {
+    this.durationFactor = durationFactor;
+  }
+
+  /**
+   * Configures if the container size is animated in the next collapse/expand animations. If not,
+   * the container is resized just once, before expanding or after collapsing, and just the
+   * buttons are animated.
+   */
+  public void setContainerAnimationEnabled(boolean isContainerAnimationEnabled) {
+    this.isContainerAnimationEnabled = isContainerAnimationEnabled;
+  }
+
+  /**
+   * Configures a FrameListener instance notified on every frame of the collapse/expand animations
+   * once the buttons and the container have been updated.
+   */
+  public void setFrameListener(FrameListener frameListener) {
+    this.frameListener = frameListener;
+    if (expandCollapseAnimation != null) {
+      expandCollapseAnimation.setFrameListener(frameListener);
+    }
+  }
+
+  /**
+   * Calculates again the expanded position of every button using the sizes obtained in the last
+   * measure pass. Invoked by the container once the buttons have been measured, so the expanded
+   * positions are not read from the buttons while the animations are running.
+   */
+  public void updateExpandedOffsets() {
+    areExpandedOffsetsValid = false;
+    getExpandedOffsets();
+  }
+
+  /**
+   * Returns the height of the rows used to render the buttons once the ExpandableSelector is
+   * expanded. This value is the height of the last button plus its margins.
+   */
+  public int getRowHeight() {
+    return buttons.getRowHeight(buttons.size() - 1);
+  }
+
+  /**
+   * Creates the objects used to animate the buttons and the container and calculates the expanded
+   * position of every button in advance, so the next expand invocation just has to start the
+   * animations. Buttons not laid out yet are measured. The objects created are reused by every
+   * collapse/expand animation.
+   */
+  public void prewarm() {
+    int numberOfButtons = buttons.size();
+    getExpandCollapseAnimation().ensureCapacity(numberOfButtons);
+    getContainerAnimation();
+    if (numberOfButtons > 0) {
+      getSumHeight();
+    }
+  }
+
   /**
    * Returns the component to the initial state without remove configuration related to animation
    * durations of if the first item visibility has to be changed.
    */
   public void reset() {
-    this.buttons = new ArrayList<View>();
+    cancelAnimations();
+    this.buttons = new ViewButtons(new ArrayList<View>());
     this.isCollapsed = true;
+    this.areExpandedOffsetsValid = false;
   }
 
   private void setCollapsed(boolean isCollapsed) {
     this.isCollapsed = isCollapsed;
   }
 
-  private void expandButtons() {
-    int numberOfButtons = buttons.size();
-    Animator[] animations = new Animator[numberOfButtons];
-    for (int i = 0; i < numberOfButtons; i++) {
-      View button = buttons.get(i);
-      TimeInterpolator interpolator = getExpandAnimatorInterpolation();
-      float toY = calculateExpandedYPosition(i);
-      animations[i] = createAnimatorForButton(interpolator, button, toY);
+  private void cancelAnimations() {
+    if (expandCollapseAnimation != null) {
+      expandCollapseAnimation.cancel();
     }
-    playAnimatorsTogether(animations);
+    hardwareLayers.restore();
   }
 
-  private void collapseButtons() {
-    int numberOfButtons = buttons.size();
-    TimeInterpolator interpolator = getCollapseAnimatorInterpolation();
-    Animator[] animations = new Animator[numberOfButtons];
-    for (int i = 0; i < numberOfButtons; i++) {
-      View button = buttons.get(i);
-      float toY = 0;
-      animations[i] = createAnimatorForButton(interpolator, button, toY);
+  /**
+   * Returns the fraction of the whole collapse/expand animation pending to be performed. It's
+   * calculated using the current position of the first button, the one moving the longest
+   * distance.
+   */
+  private float calculateRemainingFraction(boolean expanding) {
+    if (buttons.size() == 0) {
+      return 1;
     }
-    playAnimatorsTogether(animations);
-  }
-
-  private void expandContainer(final Listener listener) {
-    float toWidth = container.getWidth();
-    float toHeight = getSumHeight();
-    Interpolator interpolator = getContainerAnimationInterpolator();
-    ResizeAnimation resizeAnimation =
-        createResizeAnimation(toWidth, interpolator, toHeight, listener);
-    container.startAnimation(resizeAnimation);
-  }
-
-  private void collapseContainer(final Listener listener) {
-    float toWidth = container.getWidth();
-    float toHeight = getFirstItemHeight();
-    Interpolator interpolator = getContainerAnimationInterpolator();
-    ResizeAnimation resizeAnimation =
-        createResizeAnimation(toWidth, interpolator, toHeight, new Listener() {
-          @Override public void onAnimationFinished() {
-            changeButtonsVisibility(View.INVISIBLE);
-            listener.onAnimationFinished();
-          }
-        });
-    container.startAnimation(resizeAnimation);
-  }
-
-  private ObjectAnimator createAnimatorForButton(TimeInterpolator interpolator, View button,
-      float toY) {
-    ObjectAnimator objectAnimator = ObjectAnimator.ofFloat(button, Y_ANIMATION, toY);
-    objectAnimator.setInterpolator(interpolator);
-    objectAnimator.setDuration(animationDuration);
-    return objectAnimator;
-  }
-
-  private ResizeAnimation createResizeAnimation(float toWidth, Interpolator interpolator,
-      float toHeight, final Listener listener) {
-    ResizeAnimation resizeAnimation = new ResizeAnimation(container, toWidth, toHeight);
-    resizeAnimation.setInterpolator(interpolator);
-    resizeAnimation.setDuration((long) (animationDuration * CONTAINER_ANIMATION_OFFSET));
-    resizeAnimation.setAnimationListener(new AbstractAnimationListener() {
-      @Override public void onAnimationEnd(Animation animation) {
-        listener.onAnimationFinished();
-      }
-    });
-    return resizeAnimation;
+    float expandedY = calculateExpandedYPosition(0);
+    if (expandedY == 0) {
+      return 1;
+    }
+    float toY = expanding ? expandedY : 0;
+    float remainingDistance = Math.abs(toY - buttons.getTranslationY(0));
+    return Math.min(1, remainingDistance / Math.abs(expandedY));
   }
 
-  private void playAnimatorsTogether(Animator[] animations) {
-    AnimatorSet animatorSet = new AnimatorSet();
-    animatorSet.playTogether(animations);
-    animatorSet.start();
+  private void enableHardwareLayers() {
+    if (hardwareLayersMode == HARDWARE_LAYERS_NONE) {
+      return;
+    }
+    View layeredContainer = hardwareLayersMode == HARDWARE_LAYERS_ALL ? container : null;
+    hardwareLayers.enable(buttons, layeredContainer);
   }
 
-  private float calculateExpandedYPosition(int buttonPosition) {
+  /**
+   * Starts the animation moving every button to its expanded or collapsed position and resizing
+   * the container to the height passed as parameter. The durations and delays are proportional to
+   * the fraction of the animation pending to be performed and the duration factor configured.
+   */
+  private void startAnimation(boolean expanding, TimeInterpolator buttonsInterpolator,
+      float toHeight, Listener listener) {
     int numberOfButtons = buttons.size();
-    float y = 0;
-    for (int i = numberOfButtons - 1; i > buttonPosition; i--) {
-      View button = buttons.get(i);
-      y = y - button.getHeight() - getMarginRight(button) - getMarginLeft(button);
+    float durationFactor = remainingFraction * this.durationFactor;
+    long duration = (long) (animationDuration * durationFactor);
+    long delay = (long) (staggerDelay * durationFactor);
+    ExpandCollapseAnimation animation = getExpandCollapseAnimation();
+    animation.setButtons(buttons, buttonsInterpolator, duration);
+    for (int i = 0; i < numberOfButtons - 1; i++) {
+      float toY = expanding ? calculateExpandedYPosition(i) : 0;
+      int staggerPosition = expanding ? numberOfButtons - 2 - i : i;
+      animation.setButtonTarget(i, toY, staggerPosition * delay);
     }
-    return y;
+    if (numberOfButtons > 0) {
+      animation.setButtonTarget(numberOfButtons - 1, 0, 0);
+    }
+    long containerDuration = (long) (getContainerAnimationDuration() * durationFactor)
+        + Math.max(0, numberOfButtons - 2) * delay;
+    animation.setContainer(getContainerAnimation(), toHeight, containerInterpolator,
+        containerDuration);
+    animation.start(listener);
   }
 
-  private void changeButtonsVisibility(int visibility) {
-    int lastItem = hideFirstItemOnCollapse ? buttons.size() : buttons.size() - 1;
-    for (int i = 0; i < lastItem; i++) {
-      View button = buttons.get(i);
-      button.setVisibility(visibility);
+  private ExpandCollapseAnimation getExpandCollapseAnimation() {
+    if (expandCollapseAnimation == null) {
+      expandCollapseAnimation = new ExpandCollapseAnimation(container);
+      expandCollapseAnimation.setFrameListener(frameListener);
     }
+    return expandCollapseAnimation;
   }
 
-  private TimeInterpolator getExpandAnimatorInterpolation() {
-    return AnimationUtils.loadInterpolator(container.getContext(), expandInterpolatorId);
+  private ContainerAnimation getContainerAnimation() {
+    if (!isContainerAnimationEnabled) {
+      return getInstantResizeAnimation();
+    }
+    if (isRevealAnimationEnabled()) {
+      return getRevealAnimation();
+    }
+    return getResizeAnimation();
   }
 
-  private TimeInterpolator getCollapseAnimatorInterpolation() {
-    return AnimationUtils.loadInterpolator(container.getContext(), collapseInterpolatorId);
+  private boolean isRevealAnimationEnabled() {
+    return containerAnimation == CONTAINER_ANIMATION_REVEAL
+        && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
   }
 
-  private Interpolator getContainerAnimationInterpolator() {
-    return AnimationUtils.loadInterpolator(container.getContext(), containerInterpolatorId);
+  private RevealAnimation getRevealAnimation() {
+    if (revealAnimation == null) {
+      revealAnimation = new RevealAnimation(container);
+    }
+    return revealAnimation;
   }
 
-  private int getSumHeight() {
-    int sumHeight = 0;
-    for (View button : buttons) {
-      sumHeight += button.getHeight() + getMarginRight(button) + getMarginLeft(button);
+  private ResizeAnimation getResizeAnimation() {
+    if (resizeAnimation == null) {
+      resizeAnimation = new ResizeAnimation(container);
     }
-    return sumHeight;
+    return resizeAnimation;
   }
 
-  private int getMarginRight(View view) {
-    FrameLayout.LayoutParams layoutParams = (FrameLayout.LayoutParams) view.getLayoutParams();
-    return layoutParams.rightMargin;
+  private InstantResizeAnimation getInstantResizeAnimation() {
+    if (instantResizeAnimation == null) {
+      instantResizeAnimation = new InstantResizeAnimation(container);
+    }
+    return instantResizeAnimation;
   }
 
-  private int getMarginLeft(View view) {
-    FrameLayout.LayoutParams layoutParams = (FrameLayout.LayoutParams) view.getLayoutParams();
-    return layoutParams.leftMargin;
+  private long getContainerAnimationDuration() {
+    return (long) (animationDuration * CONTAINER_ANIMATION_OFFSET);
   }
 
-  private float getFirstItemHeight() {
-    View firstButton = buttons.get(0);
-    int height = firstButton.getHeight();
-    FrameLayout.LayoutParams layoutParams =
-        (FrameLayout.LayoutParams) firstButton.getLayoutParams();
-    int topMargin = layoutParams.topMargin;
-    int bottomMargin = layoutParams.bottomMargin;
-    return height + topMargin + bottomMargin;
+  private boolean hasFixedRowHeight() {
+    return maxVisibleItems > 0 && buttons.size() > maxVisibleItems;
   }
 
-  private void changeGravityToBottomCenterHorizontal(View view) {
-    ((FrameLayout.LayoutParams) view.getLayoutParams()).gravity =
-        Gravity.BOTTOM | Gravity.CENTER_HORIZONTAL;
+  private float calculateExpandedYPosition(int buttonPosition) {
+    int numberOfButtons = buttons.size();
+    if (hasFixedRowHeight()) {
+      return -(numberOfButtons - 1 - buttonPosition) * getRowHeight();
+    }
+    return -getExpandedOffsets()[buttonPosition + 1];
+  }
+
+  /**
+   * Returns a table where every position contains the height, plus the margins, of every button
+   * from that position to the last one. The table is calculated again just when the buttons
+   * change or the container measures them.
+   */
+  private int[] getExpandedOffsets() {
+    if (areExpandedOffsetsValid) {
+      return expandedOffsets;
+    }
+    int numberOfButtons = buttons.size();
+    if (expandedOffsets.length < numberOfButtons + 1) {
+      expandedOffsets = new int[numberOfButtons + 1];
+    }
+    expandedOffsets[numberOfButtons] = 0;
+    for (int i = numberOfButtons - 1; i >= 0; i--) {
+      expandedOffsets[i] = expandedOffsets[i + 1] + buttons.getRowHeight(i);
+    }
+    areExpandedOffsetsValid = true;
+    return expandedOffsets;
+  }
+
+  private void changeButtonsVisibility(int visibility) {
+    int lastItem = hideFirstItemOnCollapse ? buttons.size() : buttons.size() - 1;
+    for (int i = 0; i < lastItem; i++) {
+      buttons.setVisibility(i, visibility);
+    }
+  }
+
+  private int getSumHeight() {
+    if (hasFixedRowHeight()) {
+      return maxVisibleItems * getRowHeight();
+    }
+    return getExpandedOffsets()[0];
+  }
+
+  private float getFirstItemHeight() {
+    return buttons.getCollapsedHeight(0);
   }
 
   public interface Listener {
     void onAnimationFinished();
   }
+
+  /**
+   * Listener notified on every frame of the collapse/expand animations with the fraction of the
+   * whole animation performed. Designed to be used for instrumentation.
+   */
+  public interface FrameListener {
+    void onAnimationFrame(float fraction);
+  }
+
+  /**
+   * Buttons moved by the collapse/expand animations. Implemented over the widgets attached to the
+   * container or by containers drawing the buttons on their own canvas, which return null from
+   * getView and are invalidated on every frame.
+   */
+  public interface Buttons {
+
+    int size();
+
+    float getTranslationY(int buttonPosition);
+
+    void setTranslationY(int buttonPosition, float translationY);
+
+    void setVisibility(int buttonPosition, int visibility);
+
+    /**
+     * Returns the height of the expanded row used by the button, its height plus the horizontal
+     * margins. Buttons not measured yet have to be measured here.
+     */
+    int getRowHeight(int buttonPosition);
+
+    /**
+     * Returns the height of the container when the button is the only one shown, its height plus
+     * the vertical margins. Buttons not measured yet have to be measured here.
+     */
+    int getCollapsedHeight(int buttonPosition);
+
+    /**
+     * Returns the widget rendering the button or null if the button is drawn by the container.
+     */
+    View getView(int buttonPosition);
+  }
 }
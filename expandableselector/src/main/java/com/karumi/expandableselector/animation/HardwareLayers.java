@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2015 Karumi.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.karumi.expandableselector.animation;
+
+import android.view.View;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Promotes a group of views to View.LAYER_TYPE_HARDWARE while an animation is running and
+ * restores the layer type each view had before once the animation has finished. Promoting the
+ * views again before restoring them keeps the original layer types.
+ */
+class HardwareLayers {
+
+  private final List<View> views = new ArrayList<View>();
+  private int[] previousLayerTypes = new int[0];
+
+  /**
+   * Changes the layer type of the buttons and container passed as parameter to
+   * View.LAYER_TYPE_HARDWARE. Buttons drawn by the container instead of a widget are skipped.
+   */
+  void enable(ExpandableSelectorAnimator.Buttons buttons, View container) {
+    if (!views.isEmpty()) {
+      restore();
+    }
+    int numberOfButtons = buttons.size();
+    for (int i = 0; i < numberOfButtons; i++) {
+      View button = buttons.getView(i);
+      if (button != null) {
+        views.add(button);
+      }
+    }
+    if (container != null) {
+      views.add(container);
+    }
+    int numberOfViews = views.size();
+    if (previousLayerTypes.length < numberOfViews) {
+      previousLayerTypes = new int[numberOfViews];
+    }
+    for (int i = 0; i < numberOfViews; i++) {
+      View view = views.get(i);
+      previousLayerTypes[i] = view.getLayerType();
+      view.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+    }
+  }
+
+  /**
+   * Restores the layer type the views had before the last enable invocation.
+   */
+  void restore() {
+    int numberOfViews = views.size();
+    for (int i = 0; i < numberOfViews; i++) {
+      views.get(i).setLayerType(previousLayerTypes[i], null);
+    }
+    views.clear();
+  }
+}
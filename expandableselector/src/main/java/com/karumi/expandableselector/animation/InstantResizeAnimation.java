@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2015 Karumi.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.karumi.expandableselector.animation;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Container animation that changes the widget height without animating it. The widget is resized
+ * just once, before the buttons start moving when it grows or once they have been moved when it
+ * shrinks, so the buttons are never drawn out of its bounds and the widget is laid out just once
+ * per animation.
+ */
+class InstantResizeAnimation implements ContainerAnimation {
+
+  private final View view;
+  private int toHeight;
+  private boolean isShrinking;
+
+  InstantResizeAnimation(View view) {
+    this.view = view;
+  }
+
+  @Override public void start(float toHeight) {
+    this.toHeight = (int) toHeight;
+    this.isShrinking = this.toHeight < view.getHeight();
+    if (!isShrinking) {
+      resize();
+    }
+  }
+
+  @Override public void applyFraction(float fraction) {
+  }
+
+  @Override public void end(ExpandableSelectorAnimator.Listener listener) {
+    if (isShrinking) {
+      resize();
+    }
+    listener.onAnimationFinished();
+  }
+
+  @Override public void cancel() {
+  }
+
+  private void resize() {
+    ViewGroup.LayoutParams layoutParams = view.getLayoutParams();
+    if (layoutParams.height == toHeight) {
+      return;
+    }
+    layoutParams.height = toHeight;
+    layoutParams.width = view.getWidth();
+    view.requestLayout();
+  }
+}
@@ -18,43 +18,46 @@ package com.karumi.expandableselector.animation;
 
 import android.view.View;
 import android.view.ViewGroup;
-import android.view.animation.Animation;
-import android.view.animation.Transformation;
 
 /**
- * Animation extension created to resize a widget in two dimensions given the from and to width and
- * height. This Animation changes the width and the height associated to the widget and invokes
- * requestLayout() method to redraw it.
+ * Container animation created to resize a widget given the height to change it to. This
+ * animation changes the height associated to the widget and invokes requestLayout() method on
+ * every frame. The width is fixed to the one the widget had when the animation was started.
  */
-class ResizeAnimation extends Animation {
+class ResizeAnimation implements ContainerAnimation {
 
-  private static final long DEFAULT_DURATION_IN_MS = 250;
-
-  private View view;
+  private final View view;
   private float toHeight;
   private float fromHeight;
-  private float toWidth;
-  private float fromWidth;
+  private float width;
 
-  ResizeAnimation(View view, float toWidth, float toHeight) {
-    this.toHeight = toHeight;
-    this.toWidth = toWidth;
-    this.fromHeight = view.getHeight();
-    this.fromWidth = view.getWidth();
+  ResizeAnimation(View view) {
     this.view = view;
-    setDuration(DEFAULT_DURATION_IN_MS);
   }
 
-  @Override protected void applyTransformation(float interpolatedTime, Transformation t) {
-    float height = (toHeight - fromHeight) * interpolatedTime + fromHeight;
-    float width = (toWidth - fromWidth) * interpolatedTime + fromWidth;
+  /**
+   * Configures a new height to resize the widget to starting from the last height applied or
+   * the current one if the widget height has not been changed.
+   */
+  @Override public void start(float toHeight) {
+    ViewGroup.LayoutParams layoutParams = view.getLayoutParams();
+    this.toHeight = toHeight;
+    this.fromHeight = layoutParams.height >= 0 ? layoutParams.height : view.getHeight();
+    this.width = view.getWidth();
+  }
+
+  @Override public void applyFraction(float fraction) {
+    float height = (toHeight - fromHeight) * fraction + fromHeight;
     ViewGroup.LayoutParams layoutParams = view.getLayoutParams();
     layoutParams.height = (int) height;
     layoutParams.width = (int) width;
     view.requestLayout();
   }
 
-  @Override public boolean willChangeBounds() {
-    return true;
+  @Override public void end(ExpandableSelectorAnimator.Listener listener) {
+    listener.onAnimationFinished();
+  }
+
+  @Override public void cancel() {
   }
 }
@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2015 Karumi.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.karumi.expandableselector.animation;
+
+import android.annotation.TargetApi;
+import android.graphics.Rect;
+import android.os.Build;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.widget.FrameLayout;
+import android.widget.RelativeLayout;
+
+/**
+ * Container animation created to change the height of a widget without changing its layout on
+ * every frame. The widget is resized just once, before revealing it or after concealing it, and
+ * the animation changes the widget clip bounds and its translation in the Y axis to show or hide
+ * the area added or removed. The translation keeps the bottom of the widget in the same position
+ * while the animation is running whatever the widget parent does with the resized widget. The same
+ * instance can be started again to a different height without creating new objects and, if it's
+ * started while running, the new animation continues from the current visible height. Frames
+ * applied while the widget is waiting to be resized are shown once it has been laid out.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+class RevealAnimation implements ContainerAnimation, View.OnLayoutChangeListener {
+
+  private final View view;
+  private final Rect clipBounds = new Rect();
+
+  private ExpandableSelectorAnimator.Listener listener;
+  private boolean isRunning;
+  private boolean isWaitingForLayout;
+  private boolean isEnding;
+  private boolean isRevealing;
+  private int toHeight;
+  private int fromHeight;
+  private int fromBottom;
+  private float initialTranslationY;
+  private float fromVisibleHeight;
+  private float toVisibleHeight;
+  private float fromOffset;
+  private float toOffset;
+  private float visibleHeight;
+  private float offset;
+  private float fraction;
+
+  RevealAnimation(View view) {
+    this.view = view;
+  }
+
+  /**
+   * Starts the animation to change the view height to the one passed as parameter. If the
+   * animation was already running the previous listener is not notified.
+   */
+  @Override public void start(float toHeight) {
+    boolean wasRunning = isRunning;
+    stopWaitingForLayout();
+    if (!wasRunning) {
+      initialTranslationY = view.getTranslationY();
+      visibleHeight = view.getHeight();
+      offset = 0;
+    }
+    this.toHeight = (int) toHeight;
+    this.listener = null;
+    this.isEnding = false;
+    this.isRunning = true;
+    this.fraction = 0;
+    this.fromHeight = view.getHeight();
+    this.isRevealing = this.toHeight >= fromHeight;
+    fromVisibleHeight = visibleHeight;
+    toVisibleHeight = this.toHeight;
+    fromOffset = offset;
+    if (isRevealing) {
+      fromBottom = view.getBottom();
+      resize();
+    } else {
+      toOffset = getAnchorFactor() * (this.toHeight - fromHeight);
+      apply();
+    }
+  }
+
+  @Override public void applyFraction(float fraction) {
+    this.fraction = fraction;
+    if (isRunning && !isWaitingForLayout) {
+      apply();
+    }
+  }
+
+  /**
+   * Notifies the listener passed as parameter once the view has been resized, just after the
+   * last frame when revealing or after a new layout pass when concealing.
+   */
+  @Override public void end(ExpandableSelectorAnimator.Listener listener) {
+    this.listener = listener;
+    this.isEnding = true;
+    if (isWaitingForLayout) {
+      return;
+    }
+    if (isRevealing) {
+      finish();
+    } else {
+      resize();
+    }
+  }
+
+  /**
+   * Stops the animation without notifying the listener and removes the clip bounds and the
+   * translation changes applied to the view.
+   */
+  @Override public void cancel() {
+    if (!isRunning) {
+      return;
+    }
+    stopWaitingForLayout();
+    isRunning = false;
+    listener = null;
+    view.setClipBounds(null);
+    view.setTranslationY(initialTranslationY);
+  }
+
+  @Override
+  public void onLayoutChange(View v, int left, int top, int right, int bottom, int oldLeft,
+      int oldTop, int oldRight, int oldBottom) {
+    view.removeOnLayoutChangeListener(this);
+    isWaitingForLayout = false;
+    onResized();
+  }
+
+  private void apply() {
+    visibleHeight = (toVisibleHeight - fromVisibleHeight) * fraction + fromVisibleHeight;
+    offset = (toOffset - fromOffset) * fraction + fromOffset;
+    int height = view.getHeight();
+    clipBounds.set(0, (int) (height - visibleHeight), view.getWidth(), height);
+    view.setClipBounds(clipBounds);
+    view.setTranslationY(initialTranslationY + offset);
+  }
+
+  private void onResized() {
+    if (!isRevealing) {
+      finish();
+      return;
+    }
+    int bottomDelta = view.getBottom() - fromBottom;
+    fromOffset -= bottomDelta;
+    toOffset = 0;
+    apply();
+    if (isEnding) {
+      finish();
+    }
+  }
+
+  /**
+   * Returns the fraction of a height change the view bottom is going to move once the view is
+   * resized: 0 if the view is anchored to the bottom of its parent, 0.5 if it's centered and 1 if
+   * it's anchored to the top. It's obtained from the gravity or rules of the FrameLayout and
+   * RelativeLayout layout params and, for any other parent, from the view position: a view
+   * touching the bottom of its parent is considered anchored to it.
+   */
+  private float getAnchorFactor() {
+    ViewGroup.LayoutParams layoutParams = view.getLayoutParams();
+    if (layoutParams instanceof FrameLayout.LayoutParams) {
+      int gravity = ((FrameLayout.LayoutParams) layoutParams).gravity;
+      if (gravity == -1) {
+        return 1;
+      }
+      switch (gravity & Gravity.VERTICAL_GRAVITY_MASK) {
+        case Gravity.BOTTOM:
+          return 0;
+        case Gravity.CENTER_VERTICAL:
+          return 0.5f;
+        default:
+          return 1;
+      }
+    }
+    if (layoutParams instanceof RelativeLayout.LayoutParams) {
+      int[] rules = ((RelativeLayout.LayoutParams) layoutParams).getRules();
+      if (rules[RelativeLayout.CENTER_IN_PARENT] != 0
+          || rules[RelativeLayout.CENTER_VERTICAL] != 0) {
+        return 0.5f;
+      }
+      boolean isTopAnchored = rules[RelativeLayout.ALIGN_PARENT_TOP] != 0
+          || rules[RelativeLayout.ALIGN_TOP] != 0 || rules[RelativeLayout.BELOW] != 0;
+      boolean isBottomAnchored = rules[RelativeLayout.ALIGN_PARENT_BOTTOM] != 0
+          || rules[RelativeLayout.ALIGN_BOTTOM] != 0 || rules[RelativeLayout.ABOVE] != 0;
+      return isBottomAnchored && !isTopAnchored ? 0 : 1;
+    }
+    ViewParent parent = view.getParent();
+    if (!(parent instanceof View)) {
+      return 1;
+    }
+    View parentView = (View) parent;
+    int bottomMargin = layoutParams instanceof ViewGroup.MarginLayoutParams
+        ? ((ViewGroup.MarginLayoutParams) layoutParams).bottomMargin : 0;
+    int parentBottom = parentView.getHeight() - parentView.getPaddingBottom();
+    return view.getBottom() + bottomMargin >= parentBottom ? 0 : 1;
+  }
+
+  private void stopWaitingForLayout() {
+    if (isWaitingForLayout) {
+      view.removeOnLayoutChangeListener(this);
+      isWaitingForLayout = false;
+    }
+  }
+
+  private void resize() {
+    ViewGroup.LayoutParams layoutParams = view.getLayoutParams();
+    if (layoutParams.height == toHeight && view.getHeight() == toHeight) {
+      onResized();
+      return;
+    }
+    isWaitingForLayout = true;
+    view.addOnLayoutChangeListener(this);
+    layoutParams.height = toHeight;
+    layoutParams.width = view.getWidth();
+    view.requestLayout();
+  }
+
+  private void finish() {
+    isRunning = false;
+    view.setClipBounds(null);
+    view.setTranslationY(initialTranslationY);
+    ExpandableSelectorAnimator.Listener listener = this.listener;
+    this.listener = null;
+    listener.onAnimationFinished();
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2015 Karumi.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.karumi.expandableselector.animation;
+
+import android.view.View;
+import android.view.ViewGroup;
+import java.util.List;
+
+/**
+ * ExpandableSelectorAnimator.Buttons implementation backed by the Button/ImageButton widgets
+ * attached to the container. The sizes are read from the widgets measured by the container and
+ * the margins from their FrameLayout.LayoutParams.
+ */
+class ViewButtons implements ExpandableSelectorAnimator.Buttons {
+
+  private final List<View> views;
+
+  ViewButtons(List<View> views) {
+    this.views = views;
+  }
+
+  @Override public int size() {
+    return views.size();
+  }
+
+  @Override public float getTranslationY(int buttonPosition) {
+    return views.get(buttonPosition).getTranslationY();
+  }
+
+  @Override public void setTranslationY(int buttonPosition, float translationY) {
+    views.get(buttonPosition).setTranslationY(translationY);
+  }
+
+  @Override public void setVisibility(int buttonPosition, int visibility) {
+    views.get(buttonPosition).setVisibility(visibility);
+  }
+
+  @Override public int getRowHeight(int buttonPosition) {
+    View view = views.get(buttonPosition);
+    ViewGroup.MarginLayoutParams layoutParams =
+        (ViewGroup.MarginLayoutParams) view.getLayoutParams();
+    return getHeight(view) + layoutParams.rightMargin + layoutParams.leftMargin;
+  }
+
+  @Override public int getCollapsedHeight(int buttonPosition) {
+    View view = views.get(buttonPosition);
+    ViewGroup.MarginLayoutParams layoutParams =
+        (ViewGroup.MarginLayoutParams) view.getLayoutParams();
+    return getHeight(view) + layoutParams.topMargin + layoutParams.bottomMargin;
+  }
+
+  @Override public View getView(int buttonPosition) {
+    return views.get(buttonPosition);
+  }
+
+  /**
+   * Returns the measured height of the view passed as parameter. Views not measured yet are
+   * measured using the size configured in their layout params.
+   */
+  private int getHeight(View view) {
+    if (view.getMeasuredHeight() == 0) {
+      ViewGroup.LayoutParams layoutParams = view.getLayoutParams();
+      int unspecified = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+      view.measure(ViewGroup.getChildMeasureSpec(unspecified, 0, layoutParams.width),
+          ViewGroup.getChildMeasureSpec(unspecified, 0, layoutParams.height));
+    }
+    return view.getMeasuredHeight();
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2015 Karumi.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.karumi.expandableselector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ExpandableItemsDiffTest {
+
+  private static final ExpandableItem A = new ExpandableItem("A");
+  private static final ExpandableItem B = new ExpandableItem("B");
+  private static final ExpandableItem C = new ExpandableItem("C");
+  private static final ExpandableItem D = new ExpandableItem("D");
+  private static final ExpandableItem ICON_1 = new ExpandableItem().withResourceId(1);
+  private static final ExpandableItem ICON_2 = new ExpandableItem().withResourceId(2);
+
+  @Test public void keepsEveryWidgetIfTheListsAreEqual() {
+    ExpandableItemsDiff diff = calculate(items(A, B, C), items(A, B, C));
+
+    assertOldPositions(diff, 0, 1, 2);
+    assertNoRebinds(diff, 3);
+    assertFalse(diff.hasStructuralChanges());
+  }
+
+  @Test public void keepsEveryWidgetIfTheListsContainEqualItems() {
+    ExpandableItemsDiff diff =
+        calculate(items(A, B), items(new ExpandableItem("A"), new ExpandableItem("B")));
+
+    assertOldPositions(diff, 0, 1);
+    assertNoRebinds(diff, 2);
+    assertFalse(diff.hasStructuralChanges());
+  }
+
+  @Test public void createsANewWidgetForAnInsertedItem() {
+    ExpandableItemsDiff diff = calculate(items(A, B, C), items(A, D, B, C));
+
+    assertOldPositions(diff, 0, ExpandableItemsDiff.NO_POSITION, 1, 2);
+    assertTrue(diff.needsRebind(1));
+    assertFalse(diff.needsRebind(0));
+    assertFalse(diff.needsRebind(2));
+    assertFalse(diff.needsRebind(3));
+    assertTrue(diff.hasStructuralChanges());
+  }
+
+  @Test public void keepsTheRestOfWidgetsIfAnItemIsRemoved() {
+    ExpandableItemsDiff diff = calculate(items(A, B, C, D), items(A, C, D));
+
+    assertOldPositions(diff, 0, 2, 3);
+    assertNoRebinds(diff, 3);
+    assertTrue(diff.hasStructuralChanges());
+  }
+
+  @Test public void keepsEveryWidgetIfTheLastItemIsRemoved() {
+    ExpandableItemsDiff diff = calculate(items(A, B, C), items(A, B));
+
+    assertOldPositions(diff, 0, 1);
+    assertNoRebinds(diff, 2);
+    assertTrue(diff.hasStructuralChanges());
+  }
+
+  @Test public void movesTheWidgetOfAMovedItemWithoutRebindingIt() {
+    ExpandableItemsDiff diff = calculate(items(A, B, C, D), items(D, A, B, C));
+
+    assertOldPositions(diff, 3, 0, 1, 2);
+    assertNoRebinds(diff, 4);
+    assertTrue(diff.hasStructuralChanges());
+  }
+
+  @Test public void movesTheWidgetsOfSwappedItemsWithoutRebindingThem() {
+    ExpandableItemsDiff diff = calculate(items(A, B, C, D), items(A, C, B, D));
+
+    assertOldPositions(diff, 0, 2, 1, 3);
+    assertNoRebinds(diff, 4);
+    assertTrue(diff.hasStructuralChanges());
+  }
+
+  @Test public void rebindsInPlaceTheWidgetOfAChangedItemOfTheSameKind() {
+    ExpandableItemsDiff diff = calculate(items(A, B, C), items(A, D, C));
+
+    assertOldPositions(diff, 0, 1, 2);
+    assertTrue(diff.needsRebind(1));
+    assertFalse(diff.needsRebind(0));
+    assertFalse(diff.needsRebind(2));
+    assertFalse(diff.hasStructuralChanges());
+  }
+
+  @Test public void reusesTheWidgetOfARemovedItemOfTheSameKind() {
+    ExpandableItemsDiff diff = calculate(items(A, ICON_1, B), items(A, B, ICON_2));
+
+    assertOldPositions(diff, 0, 2, 1);
+    assertFalse(diff.needsRebind(0));
+    assertFalse(diff.needsRebind(1));
+    assertTrue(diff.needsRebind(2));
+    assertTrue(diff.hasStructuralChanges());
+  }
+
+  @Test public void createsANewWidgetIfAnItemChangesItsKind() {
+    ExpandableItemsDiff diff = calculate(items(A, B, C), items(A, ICON_1, C));
+
+    assertOldPositions(diff, 0, ExpandableItemsDiff.NO_POSITION, 2);
+    assertTrue(diff.needsRebind(1));
+    assertTrue(diff.hasStructuralChanges());
+  }
+
+  @Test public void reusesWidgetsByKindIfEveryItemChanges() {
+    ExpandableItemsDiff diff = calculate(items(A, ICON_1), items(ICON_2, D));
+
+    assertOldPositions(diff, 1, 0);
+    assertTrue(diff.needsRebind(0));
+    assertTrue(diff.needsRebind(1));
+    assertTrue(diff.hasStructuralChanges());
+  }
+
+  @Test public void createsNewWidgetsIfTheOldListIsEmpty() {
+    ExpandableItemsDiff diff = calculate(items(), items(A, B));
+
+    assertOldPositions(diff, ExpandableItemsDiff.NO_POSITION, ExpandableItemsDiff.NO_POSITION);
+    assertTrue(diff.needsRebind(0));
+    assertTrue(diff.needsRebind(1));
+    assertTrue(diff.hasStructuralChanges());
+  }
+
+  @Test public void reportsStructuralChangesIfEveryItemIsRemoved() {
+    ExpandableItemsDiff diff = calculate(items(A, B), items());
+
+    assertTrue(diff.hasStructuralChanges());
+  }
+
+  @Test public void matchesDuplicatedItemsInOrder() {
+    ExpandableItemsDiff diff = calculate(items(A, B, A), items(B, A, A));
+
+    assertOldPositions(diff, 1, 0, 2);
+    assertNoRebinds(diff, 3);
+  }
+
+  private static ExpandableItemsDiff calculate(List<ExpandableItem> oldItems,
+      List<ExpandableItem> newItems) {
+    return ExpandableItemsDiff.calculate(oldItems, newItems);
+  }
+
+  private static List<ExpandableItem> items(ExpandableItem... expandableItems) {
+    return new ArrayList<ExpandableItem>(Arrays.asList(expandableItems));
+  }
+
+  private static void assertOldPositions(ExpandableItemsDiff diff, int... oldPositions) {
+    for (int i = 0; i < oldPositions.length; i++) {
+      assertEquals("Old position of item " + i, oldPositions[i], diff.getOldPosition(i));
+    }
+  }
+
+  private static void assertNoRebinds(ExpandableItemsDiff diff, int numberOfItems) {
+    for (int i = 0; i < numberOfItems; i++) {
+      assertFalse("Item " + i + " rebound", diff.needsRebind(i));
+    }
+  }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2015 Karumi.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.karumi.expandableselector;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ExpandableItemsWindowTest {
+
+  private static final int ANY_MAX_VISIBLE_ITEMS = 3;
+  private static final int ANY_ROW_HEIGHT = 10;
+  private static final float DELTA = 0.001f;
+
+  @Test public void isDisabledIfEveryItemFits() {
+    ExpandableItemsWindow window = givenAWindowWithItems(ANY_MAX_VISIBLE_ITEMS);
+
+    assertFalse(window.isEnabled());
+    assertEquals(ANY_MAX_VISIBLE_ITEMS, window.getNumberOfButtons(ANY_MAX_VISIBLE_ITEMS));
+  }
+
+  @Test public void isDisabledIfTheMaxNumberOfVisibleItemsIsNotConfigured() {
+    ExpandableItemsWindow window = new ExpandableItemsWindow(0);
+    window.setNumberOfItems(32, ANY_ROW_HEIGHT);
+
+    assertFalse(window.isEnabled());
+    assertEquals(32, window.getNumberOfButtons(32));
+  }
+
+  @Test public void usesOneButtonPerVisibleItemPlusTheFirstItemIfEnabled() {
+    ExpandableItemsWindow window = givenAWindowWithItems(8);
+
+    assertTrue(window.isEnabled());
+    assertEquals(ANY_MAX_VISIBLE_ITEMS + 1, window.getNumberOfButtons(8));
+  }
+
+  @Test public void mapsItemsToButtonsInReverseOrderIfDisabled() {
+    ExpandableItemsWindow window = givenAWindowWithItems(3);
+
+    for (int itemPosition = 0; itemPosition < 3; itemPosition++) {
+      int buttonPosition = window.getButtonPosition(itemPosition);
+      assertEquals(2 - itemPosition, buttonPosition);
+      assertEquals(itemPosition, window.getExpandableItemPosition(buttonPosition));
+    }
+  }
+
+  @Test public void rendersTheFirstItemWithTheLastButton() {
+    ExpandableItemsWindow window = givenAWindowWithItems(8);
+    window.scrollBy(4 * ANY_ROW_HEIGHT, ANY_ROW_HEIGHT);
+
+    assertEquals(ANY_MAX_VISIBLE_ITEMS, window.getButtonPosition(0));
+    assertEquals(0, window.getExpandableItemPosition(ANY_MAX_VISIBLE_ITEMS));
+  }
+
+  @Test public void mapsTheFirstVisibleItemsToButtonsInReverseOrderBeforeScrolling() {
+    ExpandableItemsWindow window = givenAWindowWithItems(8);
+
+    assertEquals(2, window.getButtonPosition(1));
+    assertEquals(1, window.getButtonPosition(2));
+    assertEquals(0, window.getButtonPosition(3));
+    assertEquals(ExpandableItemsWindow.NO_POSITION, window.getButtonPosition(4));
+  }
+
+  @Test public void reusesTheButtonOfTheItemScrolledOutForTheItemScrolledIn() {
+    ExpandableItemsWindow window = givenAWindowWithItems(8);
+    int buttonPosition = window.getButtonPosition(1);
+
+    window.scrollBy(ANY_ROW_HEIGHT, ANY_ROW_HEIGHT);
+
+    assertEquals(ExpandableItemsWindow.NO_POSITION, window.getButtonPosition(1));
+    assertEquals(buttonPosition, window.getButtonPosition(4));
+    assertEquals(4, window.getExpandableItemPosition(buttonPosition));
+  }
+
+  @Test public void keepsTheButtonOfTheItemsStillVisibleAfterScrolling() {
+    ExpandableItemsWindow window = givenAWindowWithItems(8);
+    int secondItemButton = window.getButtonPosition(2);
+    int thirdItemButton = window.getButtonPosition(3);
+
+    window.scrollBy(ANY_ROW_HEIGHT, ANY_ROW_HEIGHT);
+
+    assertEquals(secondItemButton, window.getButtonPosition(2));
+    assertEquals(thirdItemButton, window.getButtonPosition(3));
+  }
+
+  @Test public void mapsButtonsAndItemsBackAndForthInEveryScrollPosition() {
+    int numberOfItems = 8;
+    ExpandableItemsWindow window = givenAWindowWithItems(numberOfItems);
+
+    for (int step = 0; step <= 2 * numberOfItems; step++) {
+      assertRoundTrips(window, numberOfItems);
+      window.scrollBy(ANY_ROW_HEIGHT / 2f, ANY_ROW_HEIGHT);
+    }
+    for (int step = 0; step <= 2 * numberOfItems; step++) {
+      assertRoundTrips(window, numberOfItems);
+      window.scrollBy(-ANY_ROW_HEIGHT / 2f, ANY_ROW_HEIGHT);
+    }
+  }
+
+  @Test public void mapsButtonsAndItemsBackAndForthAfterJumpingToTheEnd() {
+    int numberOfItems = 8;
+    ExpandableItemsWindow window = givenAWindowWithItems(numberOfItems);
+
+    window.scrollBy(numberOfItems * ANY_ROW_HEIGHT, ANY_ROW_HEIGHT);
+
+    assertRoundTrips(window, numberOfItems);
+    assertEquals(ExpandableItemsWindow.NO_POSITION, window.getButtonPosition(1));
+    assertTrue(window.getButtonPosition(numberOfItems - 1) != ExpandableItemsWindow.NO_POSITION);
+  }
+
+  @Test public void returnsTrueIfTheVisibleItemsChangeAfterScrolling() {
+    ExpandableItemsWindow window = givenAWindowWithItems(8);
+
+    assertFalse(window.scrollBy(ANY_ROW_HEIGHT / 2f, ANY_ROW_HEIGHT));
+    assertTrue(window.scrollBy(ANY_ROW_HEIGHT / 2f, ANY_ROW_HEIGHT));
+  }
+
+  @Test public void doesNotScrollAboveTheFirstItem() {
+    ExpandableItemsWindow window = givenAWindowWithItems(8);
+
+    assertFalse(window.scrollBy(-ANY_ROW_HEIGHT, ANY_ROW_HEIGHT));
+    assertEquals(-ANY_ROW_HEIGHT, window.getTranslationY(1, ANY_ROW_HEIGHT), DELTA);
+  }
+
+  @Test public void doesNotScrollBelowTheLastItem() {
+    ExpandableItemsWindow window = givenAWindowWithItems(8);
+    float maxScrollOffset = (8 - ANY_MAX_VISIBLE_ITEMS) * ANY_ROW_HEIGHT;
+
+    window.scrollBy(100 * ANY_ROW_HEIGHT, ANY_ROW_HEIGHT);
+
+    assertFalse(window.scrollBy(ANY_ROW_HEIGHT, ANY_ROW_HEIGHT));
+    assertEquals(maxScrollOffset - 7 * ANY_ROW_HEIGHT, window.getTranslationY(7, ANY_ROW_HEIGHT),
+        DELTA);
+  }
+
+  @Test public void doesNotScrollWithoutARowHeight() {
+    ExpandableItemsWindow window = givenAWindowWithItems(8);
+
+    assertFalse(window.scrollBy(100, 0));
+    assertEquals(2, window.getButtonPosition(1));
+  }
+
+  @Test public void translatesItemsByTheScrollOffsetButNotTheFirstOne() {
+    ExpandableItemsWindow window = givenAWindowWithItems(8);
+
+    window.scrollBy(15, ANY_ROW_HEIGHT);
+
+    assertEquals(0, window.getTranslationY(0, ANY_ROW_HEIGHT), DELTA);
+    assertEquals(15 - 2 * ANY_ROW_HEIGHT, window.getTranslationY(2, ANY_ROW_HEIGHT), DELTA);
+  }
+
+  @Test public void clampsTheScrollPositionIfItemsAreRemoved() {
+    ExpandableItemsWindow window = givenAWindowWithItems(8);
+    window.scrollBy(100 * ANY_ROW_HEIGHT, ANY_ROW_HEIGHT);
+
+    window.setNumberOfItems(5, ANY_ROW_HEIGHT);
+
+    assertRoundTrips(window, 5);
+    assertEquals(ExpandableItemsWindow.NO_POSITION, window.getButtonPosition(2));
+    assertTrue(window.getButtonPosition(4) != ExpandableItemsWindow.NO_POSITION);
+  }
+
+  @Test public void movesToTheInitialPositionOnReset() {
+    ExpandableItemsWindow window = givenAWindowWithItems(8);
+    window.scrollBy(100 * ANY_ROW_HEIGHT, ANY_ROW_HEIGHT);
+
+    window.reset();
+
+    assertEquals(2, window.getButtonPosition(1));
+    assertEquals(-ANY_ROW_HEIGHT, window.getTranslationY(1, ANY_ROW_HEIGHT), DELTA);
+  }
+
+  private static ExpandableItemsWindow givenAWindowWithItems(int numberOfItems) {
+    ExpandableItemsWindow window = new ExpandableItemsWindow(ANY_MAX_VISIBLE_ITEMS);
+    window.setNumberOfItems(numberOfItems, ANY_ROW_HEIGHT);
+    return window;
+  }
+
+  private static void assertRoundTrips(ExpandableItemsWindow window, int numberOfItems) {
+    int numberOfButtons = window.getNumberOfButtons(numberOfItems);
+    int visibleItems = 0;
+    for (int buttonPosition = 0; buttonPosition < numberOfButtons; buttonPosition++) {
+      int itemPosition = window.getExpandableItemPosition(buttonPosition);
+      if (itemPosition != ExpandableItemsWindow.NO_POSITION) {
+        assertEquals(buttonPosition, window.getButtonPosition(itemPosition));
+        visibleItems++;
+      }
+    }
+    for (int itemPosition = 0; itemPosition < numberOfItems; itemPosition++) {
+      int buttonPosition = window.getButtonPosition(itemPosition);
+      if (buttonPosition != ExpandableItemsWindow.NO_POSITION) {
+        assertEquals(itemPosition, window.getExpandableItemPosition(buttonPosition));
+        visibleItems--;
+      }
+    }
+    assertEquals(0, visibleItems);
+  }
+}
@@ -22,6 +22,7 @@ import android.view.View;
 import android.widget.Toast;
 import com.karumi.expandableselector.ExpandableItem;
 import com.karumi.expandableselector.ExpandableSelector;
+import com.karumi.expandableselector.ExpandableSelectorGroup;
 import com.karumi.expandableselector.ExpandableSelectorListener;
 import com.karumi.expandableselector.OnExpandableItemClickListener;
 import java.util.ArrayList;
@@ -33,6 +34,7 @@ public class MainActivity extends ActionBarActivity {
   private ExpandableSelector colorsExpandableSelector;
   private ExpandableSelector sizesExpandableSelector;
   private ExpandableSelector iconsExpandableSelector;
+  private final ExpandableSelectorGroup expandableSelectorGroup = new ExpandableSelectorGroup();
 
   @Override protected void onCreate(Bundle savedInstanceState) {
     super.onCreate(savedInstanceState);
@@ -40,6 +42,7 @@ public class MainActivity extends ActionBarActivity {
     initializeColorsExpandableSelector();
     initializeSizesExpandableSelector();
     initializeIconsExpandableSelector();
+    initializeExpandableSelectorGroup();
     initializeCloseAllButton();
   }
 
@@ -90,26 +93,21 @@ public class MainActivity extends ActionBarActivity {
       @Override public void onExpandableItemClickListener(int index, View view) {
         switch (index) {
           case 1:
-            ExpandableItem firstItem = sizesExpandableSelector.getExpandableItem(1);
-            swipeFirstItem(1, firstItem);
+            swipeFirstItem(1);
             break;
           case 2:
-            ExpandableItem secondItem = sizesExpandableSelector.getExpandableItem(2);
-            swipeFirstItem(2, secondItem);
+            swipeFirstItem(2);
             break;
           case 3:
-            ExpandableItem fourthItem = sizesExpandableSelector.getExpandableItem(3);
-            swipeFirstItem(3, fourthItem);
+            swipeFirstItem(3);
             break;
           default:
         }
         sizesExpandableSelector.collapse();
       }
 
-      private void swipeFirstItem(int position, ExpandableItem clickedItem) {
-        ExpandableItem firstItem = sizesExpandableSelector.getExpandableItem(0);
-        sizesExpandableSelector.updateExpandableItem(0, clickedItem);
-        sizesExpandableSelector.updateExpandableItem(position, firstItem);
+      private void swipeFirstItem(int position) {
+        sizesExpandableSelector.swapExpandableItems(0, position);
       }
     });
   }
@@ -117,21 +115,17 @@ public class MainActivity extends ActionBarActivity {
   private void initializeIconsExpandableSelector() {
     iconsExpandableSelector = (ExpandableSelector) findViewById(R.id.es_icons);
     List<ExpandableItem> expandableItems = new ArrayList<ExpandableItem>();
-    ExpandableItem item = new ExpandableItem();
-    item.setResourceId(R.mipmap.ic_keyboard_arrow_up_black);
+    ExpandableItem item = new ExpandableItem().withResourceId(R.mipmap.ic_keyboard_arrow_up_black);
     expandableItems.add(item);
-    item = new ExpandableItem();
-    item.setResourceId(R.mipmap.ic_gamepad_black);
+    item = new ExpandableItem().withResourceId(R.mipmap.ic_gamepad_black);
     expandableItems.add(item);
-    item = new ExpandableItem();
-    item.setResourceId(R.mipmap.ic_device_hub_black);
+    item = new ExpandableItem().withResourceId(R.mipmap.ic_device_hub_black);
     expandableItems.add(item);
     iconsExpandableSelector.showExpandableItems(expandableItems);
     iconsExpandableSelector.setOnExpandableItemClickListener(new OnExpandableItemClickListener() {
       @Override public void onExpandableItemClickListener(int index, View view) {
         if (index == 0 && iconsExpandableSelector.isExpanded()) {
           iconsExpandableSelector.collapse();
-          updateIconsFirstButtonResource(R.mipmap.ic_keyboard_arrow_up_black);
         }
         switch (index) {
           case 1:
@@ -146,7 +140,7 @@ public class MainActivity extends ActionBarActivity {
     });
     iconsExpandableSelector.setExpandableSelectorListener(new ExpandableSelectorListener() {
       @Override public void onCollapse() {
-
+        updateIconsFirstButtonResource(R.mipmap.ic_keyboard_arrow_up_black);
       }
 
       @Override public void onExpand() {
@@ -163,14 +157,18 @@ public class MainActivity extends ActionBarActivity {
     });
   }
 
+  private void initializeExpandableSelectorGroup() {
+    expandableSelectorGroup.addExpandableSelector(colorsExpandableSelector);
+    expandableSelectorGroup.addExpandableSelector(sizesExpandableSelector);
+    expandableSelectorGroup.addExpandableSelector(iconsExpandableSelector);
+    expandableSelectorGroup.setOnlyOneExpanded(true);
+  }
+
   private void initializeCloseAllButton() {
     final View closeButton = findViewById(R.id.bt_close);
     closeButton.setOnClickListener(new View.OnClickListener() {
       @Override public void onClick(View v) {
-        colorsExpandableSelector.collapse();
-        sizesExpandableSelector.collapse();
-        iconsExpandableSelector.collapse();
-        updateIconsFirstButtonResource(R.mipmap.ic_keyboard_arrow_up_black);
+        expandableSelectorGroup.collapseAll();
       }
     });
     colorsExpandableSelector.setExpandableSelectorListener(new ExpandableSelectorListener() {
@@ -193,8 +191,7 @@ public class MainActivity extends ActionBarActivity {
   }
 
   private void updateIconsFirstButtonResource(int resourceId) {
-    ExpandableItem arrowUpExpandableItem = new ExpandableItem();
-    arrowUpExpandableItem.setResourceId(resourceId);
+    ExpandableItem arrowUpExpandableItem = new ExpandableItem().withResourceId(resourceId);
     iconsExpandableSelector.updateExpandableItem(0, arrowUpExpandableItem);
   }
 